@@ -0,0 +1,130 @@
+package com.example.graphql.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.internal.InternalRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yaml.snakeyaml.Yaml;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Query building and row conversion in {@link QueryService} for a typical {@code getAntennaReport} request:
+ * four filters across two stages, one of them an enum IN list, and a two-column sort.
+ * <p>
+ * The template is the production one from {@code src/main/resources/queries.yml}, read relative to the
+ * project directory the {@code benchmark} profile runs in. The benchmark runs on the test classpath, where the fixture
+ * {@code src/test/resources/queries.yml} would otherwise shadow it with a one-line {@code getAntennaReport}.
+ * <p>
+ * Methods that add {@code filterParamN} entries work on a copy of the request parameters, so every
+ * invocation starts from the same input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryServiceBenchmark {
+
+    private static final String QUERY_NAME = "getAntennaReport";
+    private static final Path QUERIES = Path.of("src", "main", "resources", "queries.yml");
+
+    private QueryService queryService;
+    private QueryTemplate template;
+    private Map<String, Object> parameters;
+    private Map<String, Object> fieldMapping;
+    private Map<String, Object> enumMapping;
+    private List<String> enumValues;
+    private Record record;
+
+    @Setup
+    public void setUp() throws IOException {
+        MetadataService metadataService = new MetadataService(null, Duration.ofMinutes(10), Duration.ofSeconds(1), Duration.ofMinutes(1));
+        queryService = new QueryService(null, metadataService, null, new QueryMetrics(new SimpleMeterRegistry()),
+                new IndexAdvisor(null, Duration.ofMinutes(10)), null);
+        try (InputStream inputStream = Files.newInputStream(QUERIES)) {
+            Map<String, Map<String, Object>> queries = new Yaml().load(inputStream);
+            template = QueryTemplate.compile(QUERY_NAME, queries.get(QUERY_NAME));
+        }
+        fieldMapping = template.getFieldMappings();
+        enumMapping = Map.of("dbField", "obj.resourceStatus", "type", "ENUM", "enumName", "resourceStatusEnumeration");
+        enumValues = List.of("1", "2", "3", "4");
+
+        parameters = Map.of(
+                "filters", List.of(
+                        Map.of("field", "site_code", "op", "EQ", "values", List.of("MELB01")),
+                        Map.of("field", "resource_status", "op", "IN", "values", enumValues),
+                        Map.of("field", "npi_id", "op", "GT", "values", List.of("1000")),
+                        Map.of("field", "manufacturer_name", "op", "CONTAINS", "values", List.of("Ericsson"))),
+                "sort", List.of(
+                        Map.of("field", "site_code", "direction", "ASC"),
+                        Map.of("field", "element_id", "direction", "DESC")),
+                "limit", 1000,
+                "offset", 0);
+
+        List<String> keys = List.of("id", "object_category", "element_id", "site_code", "location_in_site", "manufacturer_type",
+                "hw_revision", "resource_status", "manufacturer_description", "barcode", "npi_id", "serial_number", "date_manufactured");
+        Value[] values = {Values.value("ANT-000123"), Values.value("Antenna"), Values.value("ANT-1"), Values.value("MELB01"),
+                Values.value("Level 1, Rack 4, Device 7"), Values.value("AIR 6449 B42"), Values.value("R2A"), Values.value(2),
+                Values.value("Active antenna unit"), Values.value("BC123456"), Values.value(104512L), Values.value("SN-99812"),
+                Values.value("2021-03-04T00:00:00Z")};
+        record = new InternalRecord(keys, values);
+    }
+
+    @Benchmark
+    public String buildWhereClause() {
+        return queryService.buildWhereClause(new HashMap<>(parameters), template.getStageMapping(1));
+    }
+
+    @Benchmark
+    public String handleOrderBy() {
+        return QueryService.handleOrderBy(parameters, fieldMapping);
+    }
+
+    @Benchmark
+    public List<Object> convertValues() {
+        return queryService.convertValues(enumValues, enumMapping);
+    }
+
+    @Benchmark
+    public Map<String, Object> convertRecord() {
+        return queryService.convertRecord(record);
+    }
+
+    /**
+     * Full rendering including the rendered-cypher cache lookup, the path every report request takes.
+     */
+    @Benchmark
+    public String renderAntennaReport() {
+        return queryService.renderCypher(template, new HashMap<>(parameters));
+    }
+
+    /**
+     * Template substitution alone, i.e. the cost of a rendered-cypher cache miss.
+     */
+    @Benchmark
+    public String renderAntennaReportTemplate() {
+        return template.render(placeholder -> placeholder.startsWith(QueryTemplate.WHERE_CLAUSE_PREFIX) ? "" : " SKIP $offset LIMIT $limit");
+    }
+}
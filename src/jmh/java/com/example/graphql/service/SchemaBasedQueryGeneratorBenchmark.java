@@ -0,0 +1,121 @@
+package com.example.graphql.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.scalars.ExtendedScalars;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+
+/**
+ * {@link SchemaBasedQueryGenerator} over selection sets of the real {@code schema.graphqls}.
+ * <p>
+ * The environments are captured once by executing the documents below against the schema, so the
+ * generator sees exactly what it sees at runtime. {@code generateQuery} measures the cached path,
+ * the {@code build*} benchmarks the cypher construction on a cache miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaBasedQueryGeneratorBenchmark {
+
+    private static final String LIST_QUERY = """
+            {
+              antennas(resourceStatus: 2, name: "ANT-1") {
+                id name serialNumber resourceStatus manufactureDate
+                _associated_antenna_type_Antenna_Type { id typeName typeDescription }
+                antenna_has_filter_Filter { id name }
+              }
+            }
+            """;
+    private static final String SINGLE_QUERY = """
+            {
+              suite(id: "SUITE-1") {
+                id name
+                suite_has_rack_Rack { id name rack_has_device_Device { id name } }
+                resource_at_place_Place { id name }
+              }
+            }
+            """;
+
+    private final Map<String, DataFetchingEnvironment> environments = new HashMap<>();
+    private SchemaBasedQueryGenerator generator;
+    private GraphQLObjectType antennaType;
+    private GraphQLObjectType suiteType;
+
+    @Setup
+    public void setUp() throws IOException {
+        GraphQLSchema schema;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("graphql/schema.graphqls");
+             Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                    .scalar(ExtendedScalars.Json)
+                    .type("Query", builder -> builder
+                            .dataFetcher("antennas", this::capture)
+                            .dataFetcher("suite", this::capture))
+                    .build();
+            schema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(reader), wiring);
+        }
+        GraphQL graphQL = GraphQL.newGraphQL(schema).build();
+        for (String document : new String[] {LIST_QUERY, SINGLE_QUERY}) {
+            ExecutionResult result = graphQL.execute(document);
+            if (!result.getErrors().isEmpty()) {
+                throw new IllegalStateException("Benchmark document is invalid: " + result.getErrors());
+            }
+        }
+        generator = new SchemaBasedQueryGenerator();
+        antennaType = (GraphQLObjectType) schema.getType("Antenna");
+        suiteType = (GraphQLObjectType) schema.getType("Suite");
+    }
+
+    private Object capture(DataFetchingEnvironment environment) {
+        environments.put(environment.getField().getName(), environment);
+        return null;
+    }
+
+    @Benchmark
+    public String generateListQuery() {
+        return generator.generateQuery(environments.get("antennas"));
+    }
+
+    @Benchmark
+    public String generateSingleQuery() {
+        return generator.generateQuery(environments.get("suite"));
+    }
+
+    @Benchmark
+    public String buildListQuery() {
+        return generator.generateListQuery("Antenna", antennaType, environments.get("antennas"));
+    }
+
+    @Benchmark
+    public String buildSingleQuery() {
+        return generator.generateSingleQuery("Suite", suiteType, environments.get("suite"));
+    }
+}
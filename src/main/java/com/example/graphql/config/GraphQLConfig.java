@@ -1,37 +1,84 @@
 package com.example.graphql.config;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.TransactionContext;
+import org.dataloader.DataLoader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.graphql.execution.RuntimeWiringConfigurer;
 
-import com.telstra.tni.commonutils.neo4j.DatabaseDriver;
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import com.example.graphql.instrumentation.PreparsedDocumentCache;
+import com.example.graphql.service.AsyncQueryExecutor;
+import com.example.graphql.service.ColumnarEncoder;
+import com.example.graphql.service.MultiTypeReportService;
+import com.example.graphql.service.QueryMetrics;
 import com.example.graphql.service.QueryService;
+import com.example.graphql.service.ReadTransactions;
+import com.example.graphql.service.RelationshipBatchLoader;
+import com.example.graphql.service.RelationshipQuery;
+import com.example.graphql.service.ReportSnapshotStore;
 import com.example.graphql.service.SchemaBasedQueryGenerator;
 
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.TypeDefinition;
 import graphql.scalars.ExtendedScalars;
 import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
 import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.idl.FieldWiringEnvironment;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import graphql.schema.idl.WiringFactory;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 
 @Configuration
 @Slf4j
 public class GraphQLConfig {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int DEFAULT_STREAM_CHUNK_SIZE = 200;
+    private static final int MAX_STREAM_CHUNK_SIZE = 5000;
+
     private final SchemaBasedQueryGenerator schemaBasedQueryGenerator;
-    private final DatabaseDriver databaseDriver;
+    private final ReadTransactions readTransactions;
     private final QueryService queryService;
+    private final AsyncQueryExecutor asyncQueryExecutor;
+    private final QueryMetrics queryMetrics;
+    private final MultiTypeReportService multiTypeReportService;
+    private final ReportSnapshotStore reportSnapshotStore;
+
+    @Value("${app.graphql.batch-relationships:false}")
+    private boolean batchRelationships;
+
+    @Value("${app.query.max-page-size:1000}")
+    private int maxPageSize;
 
-    public GraphQLConfig(SchemaBasedQueryGenerator schemaBasedQueryGenerator, DatabaseDriver databaseDriver, QueryService queryService) {
+    public GraphQLConfig(SchemaBasedQueryGenerator schemaBasedQueryGenerator, ReadTransactions readTransactions, QueryService queryService,
+                         AsyncQueryExecutor asyncQueryExecutor, QueryMetrics queryMetrics, MultiTypeReportService multiTypeReportService,
+                         ReportSnapshotStore reportSnapshotStore) {
         this.schemaBasedQueryGenerator = schemaBasedQueryGenerator;
-        this.databaseDriver = databaseDriver;
+        this.readTransactions = readTransactions;
         this.queryService = queryService;
+        this.asyncQueryExecutor = asyncQueryExecutor;
+        this.queryMetrics = queryMetrics;
+        this.multiTypeReportService = multiTypeReportService;
+        this.reportSnapshotStore = reportSnapshotStore;
     }
 
     @Bean
@@ -47,30 +94,240 @@ public class GraphQLConfig {
                         builder.dataFetcher(queryName, createDynamicDataFetcher(queryName));
                     }
                     return builder;
+                })
+                .type("Subscription", builder -> builder
+                        .dataFetcher("customFullReportStream", customFullReportStreamDataFetcher()));
+    }
+
+    /**
+     * Serves parsed and validated documents, including automatic persisted queries, from {@link PreparsedDocumentCache}.
+     */
+    @Bean
+    public GraphQlSourceBuilderCustomizer preparsedDocumentCustomizer(PreparsedDocumentCache preparsedDocumentCache) {
+        return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(preparsedDocumentCache));
+    }
+
+    /**
+     * When batching is enabled, every relationship field of a node type gets its own data fetcher
+     * backed by the {@link RelationshipBatchLoader} instead of being joined into the parent query.
+     * A wiring factory takes precedence over the fetchers wired explicitly, so it only claims fields
+     * between {@link #isNodeType node types}.
+     */
+    @Bean
+    public RuntimeWiringConfigurer relationshipWiringConfigurer() {
+        return new RuntimeWiringConfigurer() {
+            @Override
+            public void configure(RuntimeWiring.Builder builder) {
+                // data fetchers are supplied per field through the wiring factory below
+            }
+
+            @Override
+            public void configure(RuntimeWiring.Builder builder, List<WiringFactory> container) {
+                if (!batchRelationships) {
+                    return;
+                }
+                DataFetcher<Object> relationshipDataFetcher = relationshipDataFetcher();
+                container.add(new WiringFactory() {
+                    @Override
+                    public boolean providesDataFetcher(FieldWiringEnvironment environment) {
+                        return isNodeType(environment.getRegistry(), environment.getParentType())
+                                && isNodeType(environment.getRegistry(), environment.getFieldType());
+                    }
+
+                    @Override
+                    public DataFetcher<?> getDataFetcher(FieldWiringEnvironment environment) {
+                        return relationshipDataFetcher;
+                    }
                 });
+            }
+        };
+    }
+
+    /**
+     * @return whether the type is a generated node type, i.e. an object type with an {@code id} that the
+     *         relationship loader can look up, as opposed to a root operation type or a wrapper such as
+     *         {@code ReportResult}, {@code ReportChunk} or {@code PageInfo}
+     */
+    static boolean isNodeType(TypeDefinitionRegistry registry, TypeDefinition<?> type) {
+        if (!(type instanceof ObjectTypeDefinition objectType)) {
+            return false;
+        }
+        Set<String> rootTypes = registry.schemaDefinition()
+                .map(schema -> schema.getOperationTypeDefinitions().stream()
+                        .map(operation -> operation.getTypeName().getName())
+                        .collect(Collectors.toSet()))
+                .orElse(Set.of("Query", "Mutation", "Subscription"));
+        return !rootTypes.contains(objectType.getName())
+                && objectType.getFieldDefinitions().stream().anyMatch(field -> "id".equals(field.getName()));
+    }
+
+    DataFetcher<Object> relationshipDataFetcher() {
+        return environment -> {
+            Map<String, Object> source = environment.getSource();
+            String fieldName = environment.getField().getName();
+            if (source == null) {
+                return null;
+            }
+            // Values already projected by the parent query win over a batched lookup
+            if (source.containsKey(fieldName) || source.get("id") == null) {
+                return source.get(fieldName);
+            }
+            RelationshipQuery query = schemaBasedQueryGenerator.generateRelationshipQuery(
+                    (GraphQLObjectType) environment.getParentType(), environment.getFieldDefinition());
+            DataLoader<RelationshipBatchLoader.RelationshipKey, Object> loader =
+                    environment.getDataLoader(RelationshipBatchLoader.LOADER_NAME);
+            return loader.load(new RelationshipBatchLoader.RelationshipKey(query, source.get("id")));
+        };
     }
 
     private DataFetcher<Object> customFullReportDataFetcher() {
         return environment -> {
-            Map<String, Object> args = new java.util.HashMap<>(environment.getArguments());
-            String type = (String) args.get("type");
-            // Map type to query name
-            String queryName = "get" + type + "Report"; 
+            Map<String, Object> args = new HashMap<>(environment.getArguments());
+            List<String> types = reportTypes(args.get("type"));
+            String after = (String) args.remove("after");
+            Integer pageSize = pageSize((Integer) args.remove("first"), after);
+            String format = (String) args.remove("format");
+            if (types.size() > 1) {
+                return fetchMultiTypeReport(environment, types, args, pageSize, after, format);
+            }
+            args.put("type", types.get(0));
+            String queryName = QueryService.reportQueryName(types.get(0));
+            // Checked before anything is recorded under the client supplied name
+            if (!queryService.hasQuery(queryName)) {
+                throw new GraphQlApplicationException("INVALID_REPORT_TYPE", "Unknown report type: " + types.get(0));
+            }
+            boolean countRows = environment.getSelectionSet().contains("pageInfo/totalCount");
+            // Materialized reports are answered from memory without a query permit
+            Map<String, Object> materialized = reportSnapshotStore.getReport(queryName, args, pageSize, after, countRows);
+            if (materialized != null) {
+                return CompletableFuture.completedFuture(formatReport(materialized, format));
+            }
+            // The count runs alongside the page query, on its own copy of the arguments
+            CompletableFuture<Long> totalCount = countRows
+                    ? submit(queryName, () -> queryService.getTotalCount(queryName, new HashMap<>(args)))
+                    : CompletableFuture.completedFuture(null);
+            if (pageSize != null) {
+                return submit(queryName, () -> queryService.getReportPage(queryName, args, pageSize, after))
+                        .thenCombine(totalCount, GraphQLConfig::withTotalCount)
+                        .thenApply(report -> formatReport(report, format));
+            }
             
             // Apply default limit/offset if missing
             if (args.containsKey("limit")) {
                 args.putIfAbsent("offset", 0);
             }
             
-            Object result = queryService.getQueryResult(queryName, args);
             // Wrap list in a map to match ReportResult schema
-            return Map.of("rows", result);
+            return submit(queryName, () -> Map.of("rows", queryService.getQueryResult(queryName, args)))
+                    .thenCombine(totalCount, GraphQLConfig::withTotalCount)
+                    .thenApply(report -> formatReport(report, format));
+        };
+    }
+
+    /**
+     * Reports over several types are merged by {@link MultiTypeReportService}, which runs one query per type on
+     * the {@link AsyncQueryExecutor}. The merge waits on those queries, so it is run off the GraphQL thread
+     * and does not take a query permit of its own.
+     */
+    private CompletableFuture<Map<String, Object>> fetchMultiTypeReport(DataFetchingEnvironment environment, List<String> types,
+                                                                        Map<String, Object> args, Integer pageSize, String after,
+                                                                        String format) {
+        // Copied up front, the count and the merge run concurrently
+        Map<String, Object> countArgs = new HashMap<>(args);
+        CompletableFuture<Long> totalCount = environment.getSelectionSet().contains("pageInfo/totalCount")
+                ? submit("customFullReport", () -> multiTypeReportService.getTotalCount(types, countArgs))
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<Map<String, Object>> report = asyncQueryExecutor.coordinate(() -> pageSize != null
+                ? multiTypeReportService.getReportPage(types, args, pageSize, after)
+                : multiTypeReportService.getReport(types, args));
+        return report.thenCombine(totalCount, GraphQLConfig::withTotalCount)
+                .thenApply(counted -> formatReport(counted, format));
+    }
+
+    /**
+     * @param first the {@code first} argument
+     * @param after the {@code after} argument
+     * @return the cursor page size, at most {@code app.query.max-page-size}, or {@code null} for an offset page
+     */
+    Integer pageSize(Integer first, String after) {
+        if (first == null) {
+            return after != null ? DEFAULT_PAGE_SIZE : null;
+        }
+        if (first < 1) {
+            throw new GraphQlApplicationException("INVALID_PAGE_SIZE", "first must be at least 1, got " + first);
+        }
+        return Math.min(first, maxPageSize);
+    }
+
+    /**
+     * @return the distinct report types of the {@code type} argument, which also accepts a single type
+     */
+    static List<String> reportTypes(Object type) {
+        List<String> types = type instanceof List<?> list ? list.stream().map(String::valueOf).distinct().toList()
+                : type == null ? List.of() : List.of(String.valueOf(type));
+        if (types.isEmpty()) {
+            throw new GraphQlApplicationException("INVALID_REPORT_TYPE", "At least one report type is required");
+        }
+        return types;
+    }
+
+    /**
+     * Adds {@code pageInfo.totalCount} to a report. The report map itself may be shared through the
+     * result cache and is left unchanged.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> withTotalCount(Map<String, Object> report, Long totalCount) {
+        if (totalCount == null) {
+            return report;
+        }
+        Map<String, Object> counted = new HashMap<>(report);
+        Map<String, Object> pageInfo = report.get("pageInfo") instanceof Map<?, ?> existing
+                ? new HashMap<>((Map<String, Object>) existing) : new HashMap<>();
+        pageInfo.put("totalCount", totalCount);
+        counted.put("pageInfo", pageInfo);
+        return counted;
+    }
+
+    /**
+     * Moves the rows of a report into the {@code columnar} field for the columnar formats.
+     * The report map itself may be shared through the result cache and is left unchanged.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> formatReport(Map<String, Object> report, String format) {
+        if (format == null || "ROWS".equals(format)) {
+            return report;
+        }
+        Map<String, Object> formatted = new HashMap<>(report);
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) formatted.remove("rows");
+        formatted.put("columnar", ColumnarEncoder.encode(rows, "COLUMNAR_DICTIONARY".equals(format)));
+        return formatted;
+    }
+
+    /**
+     * Incremental variant of {@code customFullReport}: rows are pushed to the client in chunks
+     * (over SSE or WebSocket) as Neo4j produces them, so the first rows render long before the
+     * full report has been computed.
+     */
+    DataFetcher<Flux<Map<String, Object>>> customFullReportStreamDataFetcher() {
+        return environment -> {
+            Map<String, Object> args = new HashMap<>(environment.getArguments());
+            String queryName = QueryService.reportQueryName((String) args.get("type"));
+            Integer requestedChunkSize = (Integer) args.remove("chunkSize");
+            int chunkSize = requestedChunkSize == null ? DEFAULT_STREAM_CHUNK_SIZE
+                    : Math.max(1, Math.min(requestedChunkSize, MAX_STREAM_CHUNK_SIZE));
+            if (args.containsKey("limit")) {
+                args.putIfAbsent("offset", 0);
+            }
+
+            AtomicInteger sequence = new AtomicInteger();
+            return queryService.streamQueryResult(queryName, args, chunkSize)
+                    .map(rows -> Map.<String, Object>of("sequence", sequence.getAndIncrement(), "rows", rows));
         };
     }
 
     DataFetcher<Object> createDynamicDataFetcher(String queryName) {
         return environment -> {
-            java.util.Map<String, Object> args = new java.util.HashMap<>(environment.getArguments());
+            java.util.Map<String, Object> args = new HashMap<>(environment.getArguments());
             
             // Handle offset/limit pagination
             // If offset is missing but limit is present, default offset to 0
@@ -82,29 +339,33 @@ public class GraphQLConfig {
             args.putIfAbsent("id", null);
             args.putIfAbsent("npiId", null);
 
-            return queryService.getQueryResult(queryName, args);
+            return submit(queryName, () -> queryService.getQueryResult(queryName, args));
         };
     }
 
     DataFetcher<Object> genericDataFetcher() {
         return environment -> {
-            String cypher = schemaBasedQueryGenerator.generateQuery(environment);
+            String fieldName = environment.getField().getName();
+            String cypher = queryMetrics.time(fieldName, QueryMetrics.Stage.BUILD, () -> batchRelationships
+                    ? schemaBasedQueryGenerator.generateNodeQuery(environment)
+                    : schemaBasedQueryGenerator.generateQuery(environment));
             log.debug("Generic DataFetcher Cypher: {}", cypher);
             
             Map<String, Object> args = environment.getArguments();
-            List<Map<String, Object>> results = executeQuery(cypher, args);
-            
             boolean isList = environment.getFieldDefinition().getType() instanceof GraphQLList;
             
-            if (isList) {
-                return results.stream()
-                        .map(r -> r.values().isEmpty() ? null : r.values().iterator().next())
-                        .collect(java.util.stream.Collectors.toList());
-            } else {
-                if (results.isEmpty()) return null;
-                Map<String, Object> firstRow = results.get(0);
-                return firstRow.values().isEmpty() ? null : firstRow.values().iterator().next();
-            }
+            return submit(fieldName, () -> {
+                List<Map<String, Object>> results = executeQuery(fieldName, cypher, args);
+                if (isList) {
+                    return results.stream()
+                            .map(r -> r.values().isEmpty() ? null : r.values().iterator().next())
+                            .collect(java.util.stream.Collectors.toList());
+                } else {
+                    if (results.isEmpty()) return null;
+                    Map<String, Object> firstRow = results.get(0);
+                    return firstRow.values().isEmpty() ? null : firstRow.values().iterator().next();
+                }
+            });
         };
     }
 
@@ -113,17 +374,34 @@ public class GraphQLConfig {
             String queryName = environment.getArgument("queryName");
             Map<String, Object> parameters = environment.getArgument("parameters");
             log.debug("GraphQLConfig.runQueryDataFetcher called with queryName: {}, parameters: {}", queryName, parameters);
-            return queryService.getQueryResult(queryName, parameters);
+            // Checked before anything is recorded under the client supplied name
+            if (!queryService.hasQuery(queryName)) {
+                throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Unknown query: " + queryName);
+            }
+            return submit(queryName, () -> queryService.getQueryResult(queryName, parameters));
         };
     }
 
-    private List<Map<String, Object>> executeQuery(String cypher, Map<String, Object> parameters) {
-        try (Session session = databaseDriver.sessionFor()) {
-            List<Record> recordList = executeRead(session, cypher, parameters);
-            return recordList.stream()
-                    .map(record -> record.asMap())
-                    .toList();
-        }
+    /**
+     * Runs the task on the {@link AsyncQueryExecutor}, recording how long it waited for a query permit.
+     *
+     * @param query metrics tag; a {@code queries.yml} entry, schema field or fixed name, never unchecked client input
+     */
+    private <T> CompletableFuture<T> submit(String query, Callable<T> task) {
+        long submitted = System.nanoTime();
+        return asyncQueryExecutor.submit(() -> {
+            queryMetrics.recordStage(query, QueryMetrics.Stage.QUEUE, System.nanoTime() - submitted);
+            return task.call();
+        });
+    }
+
+    private List<Map<String, Object>> executeQuery(String fieldName, String cypher, Map<String, Object> parameters) {
+        List<Record> recordList = queryMetrics.time(fieldName, QueryMetrics.Stage.EXECUTE,
+                () -> readTransactions.read(fieldName, null, context -> executeTransaction(context, cypher, parameters).list()));
+        queryMetrics.recordRows(fieldName, recordList.size());
+        return queryMetrics.time(fieldName, QueryMetrics.Stage.CONVERT, () -> recordList.stream()
+                .map(record -> record.asMap())
+                .toList());
     }
 
     /**
@@ -0,0 +1,19 @@
+package com.example.graphql.config;
+
+import org.neo4j.driver.MetricsAdapter;
+import org.springframework.boot.autoconfigure.neo4j.ConfigBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Publishes the Neo4j driver's connection pool metrics (in use, idle, acquisition time and
+     * timeouts) to Micrometer's global registry, which the auto-configured registries are part of.
+     */
+    @Bean
+    public ConfigBuilderCustomizer neo4jDriverMetricsCustomizer() {
+        return builder -> builder.withDriverMetrics().withMetricsAdapter(MetricsAdapter.MICROMETER);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.graphql.controller;
+
+import java.util.List;
+
+import com.example.graphql.service.IndexAdvisor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Lists report filter fields that were executed without a usable Neo4j index, with the latency observed
+ * for them and the statement that would create the index.
+ */
+@RestController
+@RequestMapping("/api/v1/indexes")
+public class IndexAdviceController {
+
+    private final IndexAdvisor indexAdvisor;
+
+    public IndexAdviceController(IndexAdvisor indexAdvisor) {
+        this.indexAdvisor = indexAdvisor;
+    }
+
+    @GetMapping("/advice")
+    public List<IndexAdvisor.IndexAdvice> advice(@RequestParam(defaultValue = "20") int limit) {
+        return indexAdvisor.advise(Math.max(0, limit));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.graphql.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.graphql.service.ExportFormat;
+import com.example.graphql.service.ReportExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Downloads a complete report as a gzip compressed file instead of paging {@code customFullReport}.
+ * The request body takes the same {@code filters} and {@code columns} as the GraphQL query.
+ */
+@RestController
+@RequestMapping("/api/v1/reports")
+@Slf4j
+public class ReportExportController {
+
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final ReportExportService reportExportService;
+
+    public ReportExportController(ReportExportService reportExportService) {
+        this.reportExportService = reportExportService;
+    }
+
+    @PostMapping("/{type}/export")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable String type,
+                                                        @RequestParam(defaultValue = "CSV") ExportFormat format,
+                                                        @RequestBody(required = false) Map<String, Object> body) {
+        if (!reportExportService.supports(type)) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        if (body != null && body.get("filters") != null) {
+            parameters.put("filters", body.get("filters"));
+        }
+        if (body != null && body.get("columns") != null) {
+            parameters.put("columns", body.get("columns"));
+        }
+        String fileName = type.replaceAll("[^a-zA-Z0-9_]", "") + "-report." + format.getExtension() + ".gz";
+        StreamingResponseBody stream = out -> reportExportService.export(type, parameters, format, out);
+        return ResponseEntity.ok()
+                .contentType(GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(stream);
+    }
+}
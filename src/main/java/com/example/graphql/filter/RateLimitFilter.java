@@ -1,8 +1,12 @@
 package com.example.graphql.filter;
 
 import java.io.IOException;
+import java.util.Set;
 
+import com.example.graphql.service.QueryCostCalculator;
+import com.example.graphql.service.QueryMetrics;
 import com.example.graphql.service.RateLimitingService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import io.github.bucket4j.Bucket;
@@ -17,14 +21,38 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Admits GraphQL and report export requests against the client's rate limit bucket.
+ * <p>
+ * GraphQL requests take one token here, the rest of their cost is charged by {@code RateLimitInstrumentation}
+ * once the document has been parsed. Exports never reach the instrumentation, so they are charged their full
+ * {@link QueryCostCalculator#exportCost() cost} before the first row is streamed.
+ */
 @Component
 @Slf4j
 public class RateLimitFilter implements Filter {
 
+    /**
+     * Request attribute carrying the rate limit key, used to charge operation cost once the
+     * GraphQL document has been parsed.
+     */
+    public static final String CLIENT_KEY_ATTRIBUTE = RateLimitFilter.class.getName() + ".clientKey";
+
     private final RateLimitingService rateLimitingService;
+    private final QueryCostCalculator queryCostCalculator;
+    private final QueryMetrics queryMetrics;
+
+    /**
+     * Addresses of the reverse proxies allowed to set {@code X-Forwarded-For}; the header of any other peer is ignored.
+     */
+    @Value("${app.rate-limit.trusted-proxies:}")
+    private Set<String> trustedProxies = Set.of();
 
-    public RateLimitFilter(RateLimitingService rateLimitingService) {
+    public RateLimitFilter(RateLimitingService rateLimitingService, QueryCostCalculator queryCostCalculator,
+                           QueryMetrics queryMetrics) {
         this.rateLimitingService = rateLimitingService;
+        this.queryCostCalculator = queryCostCalculator;
+        this.queryMetrics = queryMetrics;
     }
 
     @Override
@@ -33,13 +61,17 @@ public class RateLimitFilter implements Filter {
         
         if (request instanceof HttpServletRequest httpRequest && response instanceof HttpServletResponse httpResponse) {
             
-            // Only apply to GraphQL endpoints
+            // Only apply to GraphQL and report export endpoints
             String path = httpRequest.getRequestURI();
-            if (path.contains("/api/v1/graphql")) {
+            boolean export = path.contains("/api/v1/reports");
+            if (path.contains("/api/v1/graphql") || export) {
                 
                 String ip = getClientIP(httpRequest);
+                httpRequest.setAttribute(CLIENT_KEY_ATTRIBUTE, ip);
                 Bucket bucket = rateLimitingService.resolveBucket(ip);
-                ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+                // Exports costing more than a full bucket drain it rather than being unpayable forever
+                long tokens = export ? Math.min(queryCostCalculator.exportCost(), rateLimitingService.getCapacity()) : 1;
+                ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(Math.max(tokens, 1));
 
                 if (probe.isConsumed()) {
                     log.debug("Request allowed for IP: {}. Remaining tokens: {}", ip, probe.getRemainingTokens());
@@ -47,6 +79,7 @@ public class RateLimitFilter implements Filter {
                     chain.doFilter(request, response);
                 } else {
                     log.warn("Rate limit exceeded for IP: {}. Retry after: {} seconds", ip, probe.getNanosToWaitForRefill() / 1_000_000_000);
+                    queryMetrics.recordRateLimitRejection(export ? "cost" : "admission");
                     httpResponse.setStatus(429);
                     httpResponse.setHeader("X-Rate-Limit-Retry-After-Seconds", String.valueOf(probe.getNanosToWaitForRefill() / 1_000_000_000));
                     httpResponse.setContentType("application/json");
@@ -59,11 +92,22 @@ public class RateLimitFilter implements Filter {
         chain.doFilter(request, response);
     }
 
-    private String getClientIP(HttpServletRequest request) {
+    /**
+     * @return the peer address, or when the peer is a trusted proxy, the last {@code X-Forwarded-For} entry not added
+     *         by a trusted proxy; entries further left are set by the client and cannot be trusted
+     */
+    String getClientIP(HttpServletRequest request) {
+        String client = request.getRemoteAddr();
         String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader == null || xfHeader.isEmpty()) {
-            return request.getRemoteAddr();
+        if (xfHeader == null || xfHeader.isEmpty() || !trustedProxies.contains(client)) {
+            return client;
+        }
+        String[] forwarded = xfHeader.split(",");
+        for (int i = forwarded.length - 1; i >= 0 && trustedProxies.contains(client); i--) {
+            if (!forwarded[i].isBlank()) {
+                client = forwarded[i].trim();
+            }
         }
-        return xfHeader.split(",")[0].trim();
+        return client;
     }
 }
@@ -0,0 +1,93 @@
+package com.example.graphql.instrumentation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport;
+import graphql.execution.preparsed.persisted.PersistedQueryCache;
+import graphql.execution.preparsed.persisted.PersistedQueryCacheMiss;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Skips parsing and validation of documents that were already executed.
+ * <p>
+ * Requests carrying {@code extensions.persistedQuery.sha256Hash} follow the Apollo automatic persisted
+ * query protocol: the hash alone is looked up, a miss answers {@code PersistedQueryNotFound} and the
+ * client retries with the full document, which is checked against the hash before it is registered.
+ * Plain requests are cached by document text. Both caches are bounded and only keep documents that
+ * parsed and validated without errors.
+ */
+@Component
+@Slf4j
+public class PreparsedDocumentCache implements PreparsedDocumentProvider, MeterBinder {
+
+    private final Cache<Object, PreparsedDocumentEntry> persistedQueries;
+    private final Cache<String, PreparsedDocumentEntry> documents;
+    private final ApolloPersistedQuerySupport persistedQuerySupport;
+
+    public PreparsedDocumentCache(@Value("${app.graphql.document-cache.max-persisted-queries:1000}") long maxPersistedQueries,
+                                  @Value("${app.graphql.document-cache.max-documents:1000}") long maxDocuments) {
+        this.persistedQueries = Caffeine.newBuilder().maximumSize(maxPersistedQueries).recordStats().build();
+        this.documents = Caffeine.newBuilder().maximumSize(maxDocuments).recordStats().build();
+        this.persistedQuerySupport = new ApolloPersistedQuerySupport(new PersistedQueryCache() {
+            @Override
+            public CompletableFuture<PreparsedDocumentEntry> getPersistedQueryDocumentAsync(Object persistedQueryId, ExecutionInput executionInput,
+                                                                                            PersistedQueryCacheMiss onCacheMiss) {
+                PreparsedDocumentEntry cached = persistedQueries.getIfPresent(persistedQueryId);
+                if (cached != null) {
+                    return CompletableFuture.completedFuture(cached);
+                }
+                // Throws PersistedQueryNotFound when only the hash was sent, PersistedQueryIdInvalid when it does not match
+                PreparsedDocumentEntry entry = onCacheMiss.apply(executionInput.getQuery());
+                if (!entry.hasErrors()) {
+                    log.debug("Registered persisted query {}", persistedQueryId);
+                    persistedQueries.put(persistedQueryId, entry);
+                }
+                return CompletableFuture.completedFuture(entry);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput executionInput,
+                                                                      Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        return persistedQuerySupport.getDocumentAsync(executionInput, input -> {
+            PreparsedDocumentEntry cached = documents.getIfPresent(input.getQuery());
+            if (cached != null) {
+                return cached;
+            }
+            PreparsedDocumentEntry entry = parseAndValidateFunction.apply(input);
+            if (!entry.hasErrors()) {
+                documents.put(input.getQuery(), entry);
+            }
+            return entry;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, persistedQueries, "persistedQueries");
+        CaffeineCacheMetrics.monitor(registry, documents, "preparsedDocuments");
+        Gauge.builder("cache.hit.ratio", persistedQueries, cache -> cache.stats().hitRate())
+                .tag("cache", "persistedQueries")
+                .description("Share of persisted query lookups answered without parsing")
+                .register(registry);
+        Gauge.builder("cache.hit.ratio", documents, cache -> cache.stats().hitRate())
+                .tag("cache", "preparsedDocuments")
+                .description("Share of plain documents answered without parsing")
+                .register(registry);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.graphql.instrumentation;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.example.graphql.service.QueryCostCalculator;
+import com.example.graphql.service.QueryCostCalculator.QueryComplexity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import graphql.ExecutionResult;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rejects operations whose estimated complexity or depth exceeds the configured budget before any
+ * data fetcher runs, and reports the computed cost under {@code extensions.cost} of every response.
+ * Ordered first so that rejected operations are not charged against the client's rate limit.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class QueryComplexityInstrumentation extends SimplePerformantInstrumentation {
+
+    private static final String COST_CONTEXT_KEY = QueryComplexityInstrumentation.class.getName() + ".cost";
+
+    private final QueryCostCalculator queryCostCalculator;
+
+    @Value("${app.graphql.complexity.max-complexity:20000}")
+    private long maxComplexity;
+
+    @Value("${app.graphql.complexity.max-depth:8}")
+    private int maxDepth;
+
+    public QueryComplexityInstrumentation(QueryCostCalculator queryCostCalculator) {
+        this.queryCostCalculator = queryCostCalculator;
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                         InstrumentationState state) {
+        ExecutionContext executionContext = parameters.getExecutionContext();
+        QueryComplexity cost = queryCostCalculator.calculateComplexity(executionContext.getGraphQLSchema(),
+                executionContext.getOperationDefinition(), executionContext.getFragmentsByName(),
+                executionContext.getCoercedVariables().toMap());
+        executionContext.getGraphQLContext().put(COST_CONTEXT_KEY, cost);
+
+        if (cost.complexity() > maxComplexity) {
+            log.warn("Rejecting operation with complexity {} over budget {}", cost.complexity(), maxComplexity);
+            throw new AbortExecutionException("Operation complexity " + cost.complexity() + " exceeds the maximum of " + maxComplexity);
+        }
+        if (cost.depth() > maxDepth) {
+            log.warn("Rejecting operation with depth {} over limit {}", cost.depth(), maxDepth);
+            throw new AbortExecutionException("Operation depth " + cost.depth() + " exceeds the maximum of " + maxDepth);
+        }
+        return SimpleInstrumentationContext.noOp();
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult,
+                                                                        InstrumentationExecutionParameters parameters,
+                                                                        InstrumentationState state) {
+        QueryComplexity cost = parameters.getGraphQLContext().get(COST_CONTEXT_KEY);
+        if (cost == null) {
+            return CompletableFuture.completedFuture(executionResult);
+        }
+        return CompletableFuture.completedFuture(executionResult.transform(builder -> builder.addExtension("cost",
+                Map.of("complexity", cost.complexity(), "depth", cost.depth(), "maxComplexity", maxComplexity))));
+    }
+}
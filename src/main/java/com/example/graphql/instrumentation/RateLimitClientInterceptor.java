@@ -0,0 +1,29 @@
+package com.example.graphql.instrumentation;
+
+import java.util.Map;
+
+import com.example.graphql.filter.RateLimitFilter;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Copies the client key resolved by {@link RateLimitFilter} into the GraphQL context so that
+ * {@link RateLimitInstrumentation} can charge the same bucket.
+ */
+@Component
+public class RateLimitClientInterceptor implements WebGraphQlInterceptor {
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        Object clientKey = request.getAttributes().get(RateLimitFilter.CLIENT_KEY_ATTRIBUTE);
+        if (clientKey != null) {
+            request.configureExecutionInput((input, builder) ->
+                    builder.graphQLContext(Map.of(RateLimitInstrumentation.CLIENT_KEY, clientKey)).build());
+        }
+        return chain.next(request);
+    }
+}
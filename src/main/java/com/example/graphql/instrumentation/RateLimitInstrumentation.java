@@ -0,0 +1,69 @@
+package com.example.graphql.instrumentation;
+
+import com.example.graphql.service.QueryCostCalculator;
+import com.example.graphql.service.QueryMetrics;
+import com.example.graphql.service.RateLimitingService;
+import org.springframework.stereotype.Component;
+
+import graphql.ExecutionResult;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import io.github.bucket4j.ConsumptionProbe;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Charges the rate limit bucket of the calling client by the estimated cost of the operation.
+ * <p>
+ * {@code RateLimitFilter} already took one token on admission, so only the remainder is drawn here.
+ * Operations the bucket cannot pay for are aborted before any data fetcher runs.
+ */
+@Component
+@Slf4j
+public class RateLimitInstrumentation extends SimplePerformantInstrumentation {
+
+    /**
+     * GraphQL context key holding the client's rate limit key, see {@link RateLimitClientInterceptor}.
+     */
+    public static final String CLIENT_KEY = "rateLimitClientKey";
+
+    private final QueryCostCalculator queryCostCalculator;
+    private final RateLimitingService rateLimitingService;
+    private final QueryMetrics queryMetrics;
+
+    public RateLimitInstrumentation(QueryCostCalculator queryCostCalculator, RateLimitingService rateLimitingService,
+                                    QueryMetrics queryMetrics) {
+        this.queryCostCalculator = queryCostCalculator;
+        this.rateLimitingService = rateLimitingService;
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                         InstrumentationState state) {
+        ExecutionContext executionContext = parameters.getExecutionContext();
+        String clientKey = executionContext.getGraphQLContext().get(CLIENT_KEY);
+        if (clientKey == null) {
+            return SimpleInstrumentationContext.noOp();
+        }
+        long cost = queryCostCalculator.calculate(executionContext.getOperationDefinition(),
+                executionContext.getFragmentsByName(), executionContext.getCoercedVariables().toMap());
+        // Operations costing more than a full bucket drain it rather than being unpayable forever
+        long charge = Math.min(cost, rateLimitingService.getCapacity()) - 1;
+        if (charge > 0) {
+            ConsumptionProbe probe = rateLimitingService.resolveBucket(clientKey).tryConsumeAndReturnRemaining(charge);
+            if (!probe.isConsumed()) {
+                long retryAfterSeconds = probe.getNanosToWaitForRefill() / 1_000_000_000;
+                log.warn("Rate limit exceeded for IP: {}. Operation cost: {}, retry after: {} seconds", clientKey, cost, retryAfterSeconds);
+                queryMetrics.recordRateLimitRejection("cost");
+                throw new AbortExecutionException("Too many requests: operation cost " + cost
+                        + " exceeds remaining rate limit, retry after " + retryAfterSeconds + " seconds");
+            }
+        }
+        return SimpleInstrumentationContext.noOp();
+    }
+}
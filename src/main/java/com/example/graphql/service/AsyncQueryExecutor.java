@@ -0,0 +1,105 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs Neo4j work for data fetchers on virtual threads so that independent root fields and aliases
+ * of one document execute concurrently without holding servlet threads while waiting on Bolt.
+ * <p>
+ * Concurrency is bounded by a permit count that should not exceed the driver's connection pool size,
+ * otherwise tasks would only queue up inside the pool instead of here.
+ */
+@Component
+@Slf4j
+public class AsyncQueryExecutor implements MeterBinder {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+
+    public AsyncQueryExecutor(@Value("${app.graphql.async.max-concurrent-queries:100}") int maxConcurrentQueries,
+                              @Value("${app.graphql.async.acquire-timeout:30s}") Duration acquireTimeout) {
+        this.permits = new Semaphore(maxConcurrentQueries, true);
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            acquirePermit();
+            try {
+                return call(task);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * Runs a task that only waits on queries it {@link #submit submits} itself, such as merging the results of
+     * several queries. It runs on a virtual thread without taking a permit, so it neither blocks the calling
+     * thread nor holds a permit that the queries it waits on may need.
+     */
+    public <T> CompletableFuture<T> coordinate(Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> call(task), executor);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("graphql.async.permits.available", permits, Semaphore::availablePermits)
+                .description("Query permits currently free")
+                .register(registry);
+        Gauge.builder("graphql.async.permits.waiting", permits, Semaphore::getQueueLength)
+                .description("Tasks waiting for a query permit")
+                .register(registry);
+    }
+
+    /**
+     * @return permits currently free, i.e. how many more queries could start right now
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Error executing query: " + e.getMessage(), e);
+        }
+    }
+
+    private void acquirePermit() {
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("No query permit available within {}", acquireTimeout);
+                throw new GraphQlApplicationException("QUERY_CAPACITY_EXCEEDED", "Too many concurrent queries, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Interrupted while waiting for a query permit", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.graphql.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes report rows column-wise for the {@code COLUMNAR} report formats.
+ * <p>
+ * The result carries the column names once and every row as a positional array:
+ * <pre>
+ * { "columns": ["id", "object_category", ...],
+ *   "rows": [["ANT-1", 0, ...], ["ANT-2", 0, ...]],
+ *   "dictionaries": { "object_category": ["Antenna"] } }
+ * </pre>
+ * With dictionary encoding, columns whose distinct values are few compared to the number of rows are
+ * sent as indexes into a per-column dictionary.
+ */
+public final class ColumnarEncoder {
+
+    static final int MAX_DICTIONARY_SIZE = 256;
+
+    private ColumnarEncoder() {
+    }
+
+    /**
+     * @param rows       rows sharing one set of columns, as returned by the report queries
+     * @param dictionary whether to dictionary-encode low-cardinality columns
+     * @return the columnar representation described above
+     */
+    public static Map<String, Object> encode(List<Map<String, Object>> rows, boolean dictionary) {
+        List<String> columns = rows.isEmpty() ? List.of() : List.copyOf(rows.get(0).keySet());
+        List<Object[]> data = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            data.add(toArray(row, rows.get(0), columns));
+        }
+
+        Map<String, List<Object>> dictionaries = new HashMap<>();
+        if (dictionary) {
+            for (int column = 0; column < columns.size(); column++) {
+                List<Object> values = dictionaryEncode(data, column);
+                if (values != null) {
+                    dictionaries.put(columns.get(column), values);
+                }
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("columns", columns);
+        result.put("rows", data);
+        result.put("dictionaries", dictionaries);
+        return result;
+    }
+
+    private static Object[] toArray(Map<String, Object> row, Map<String, Object> first, List<String> columns) {
+        if (row instanceof RecordProjector.Row projected && first instanceof RecordProjector.Row layout && projected.sameLayout(layout)) {
+            return projected.toArray();
+        }
+        Object[] values = new Object[columns.size()];
+        for (int column = 0; column < values.length; column++) {
+            values[column] = row.get(columns.get(column));
+        }
+        return values;
+    }
+
+    /**
+     * Replaces the column's values by dictionary indexes if it has at most {@link #MAX_DICTIONARY_SIZE}
+     * distinct values and at most half as many as there are rows.
+     *
+     * @return the dictionary, or {@code null} if the column was left as is
+     */
+    private static List<Object> dictionaryEncode(List<Object[]> data, int column) {
+        int limit = Math.min(MAX_DICTIONARY_SIZE, data.size() / 2);
+        Map<Object, Integer> codes = new LinkedHashMap<>();
+        for (Object[] row : data) {
+            codes.putIfAbsent(row[column], codes.size());
+            if (codes.size() > limit) {
+                return null;
+            }
+        }
+        for (Object[] row : data) {
+            row[column] = codes.get(row[column]);
+        }
+        return new ArrayList<>(codes.keySet());
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.graphql.service;
+
+/**
+ * Output formats of report exports. Both are written gzip compressed.
+ */
+public enum ExportFormat {
+
+    CSV("csv"),
+    NDJSON("ndjson");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return file name extension of the uncompressed content, without the {@code .gz} suffix
+     */
+    public String getExtension() {
+        return extension;
+    }
+}
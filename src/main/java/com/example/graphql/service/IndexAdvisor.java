@@ -0,0 +1,259 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.neo4j.driver.Record;
+import org.owasp.esapi.ESAPI;
+import org.owasp.esapi.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ObjectUtils;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Knows which node properties are indexed and which report filters run without an index.
+ * <p>
+ * Single-property node indexes are read with {@code SHOW INDEXES} at startup and then periodically;
+ * uniqueness and key constraints are covered through their backing indexes. {@link QueryService} asks
+ * {@link #isIndexed} to put index-backed predicates first and reports every executed filter through
+ * {@link #recordFilters}, attributing the query's execution time to each filtered field. {@link #advise}
+ * lists the filter fields that ran without a usable index, most expensive first.
+ */
+@Service
+@Slf4j
+public class IndexAdvisor {
+
+    private static final Logger logger = ESAPI.getLogger(IndexAdvisor.class);
+    private static final String INDEX_CYPHER = "SHOW INDEXES YIELD type, entityType, labelsOrTypes, properties, state "
+            + "WHERE entityType = 'NODE' AND state = 'ONLINE' AND labelsOrTypes IS NOT NULL "
+            + "RETURN type, labelsOrTypes, properties";
+    private static final Pattern PROPERTY_ACCESS = Pattern.compile("^(\\w+)\\.(\\w+)$");
+    private static final String RANGE = "RANGE";
+    private static final String TEXT = "TEXT";
+
+    private final ReadTransactions readTransactions;
+    private final Duration refreshInterval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("index-metadata-", 0).factory());
+    private final Map<UsageKey, FilterUsage> usage = new ConcurrentHashMap<>();
+    private volatile Map<String, Set<String>> indexTypes = Collections.emptyMap();
+
+    public IndexAdvisor(ReadTransactions readTransactions,
+                        @Value("${app.indexes.refresh-interval:10m}") Duration refreshInterval) {
+        this.readTransactions = readTransactions;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndexes() {
+        scheduler.scheduleWithFixedDelay(this::reload, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads the online node indexes and swaps them in. A failed read keeps the previous ones.
+     *
+     * @return whether the read succeeded
+     */
+    boolean reload() {
+        try {
+            List<Record> records = readTransactions.read("indexes", null, tx -> tx.run(INDEX_CYPHER).list());
+            Map<String, Set<String>> types = new HashMap<>();
+            for (Record record : records) {
+                List<Object> properties = record.get("properties").asList();
+                List<Object> labels = record.get("labelsOrTypes").asList();
+                // Composite indexes need predicates on all of their properties and are not considered
+                if (properties.size() == 1 && labels.size() == 1) {
+                    types.computeIfAbsent(labels.get(0) + "." + properties.get(0), key -> new HashSet<>())
+                            .add(record.get("type").asString());
+                }
+            }
+            indexTypes = Collections.unmodifiableMap(types);
+            logger.info(Logger.EVENT_SUCCESS, "Loaded indexes: " + types.keySet());
+            return true;
+        } catch (Exception e) {
+            logger.error(Logger.EVENT_FAILURE, "Failed to load indexes: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * @param dbField a {@code fieldMapping} dbField such as {@code obj.serialNumber}
+     * @param op      the filter operator
+     * @return whether an online index can serve the predicate
+     */
+    public boolean isIndexed(QueryTemplate template, String dbField, String op) {
+        String property = labelledProperty(template, dbField);
+        String indexType = indexTypeFor(op);
+        if (property == null || indexType == null) {
+            return false;
+        }
+        Set<String> types = indexTypes.get(property);
+        if (types == null) {
+            return false;
+        }
+        // TEXT indexes also serve string equality
+        return types.contains(indexType) || (isEquality(op) && types.contains(TEXT));
+    }
+
+    /**
+     * Records one execution of a query with its filters.
+     *
+     * @param parameters the query parameters holding the {@code filters}
+     * @param nanos      execution time of the whole query
+     */
+    @SuppressWarnings("unchecked")
+    public void recordFilters(QueryTemplate template, Map<String, Object> parameters, long nanos) {
+        List<Map<String, Object>> filters = (List<Map<String, Object>>) parameters.get("filters");
+        if (ObjectUtils.isEmpty(filters)) {
+            return;
+        }
+        for (Map<String, Object> filter : filters) {
+            String field = (String) filter.get("field");
+            String op = (String) filter.get("op");
+            String dbField = dbField(template.getFieldMappings().get(field));
+            String indexType = indexTypeFor(op);
+            String property = labelledProperty(template, dbField);
+            if (property == null || indexType == null) {
+                continue;
+            }
+            usage.computeIfAbsent(new UsageKey(template.getName(), field, property, indexType), key -> new FilterUsage())
+                    .record(nanos, isIndexed(template, dbField, op));
+        }
+    }
+
+    /**
+     * @param limit maximum number of entries
+     * @return filter fields that ran without a usable index, by total unindexed execution time, descending
+     */
+    public List<IndexAdvice> advise(int limit) {
+        return usage.entrySet().stream()
+                // Fields indexed since they were observed are no longer reported
+                .filter(entry -> entry.getValue().unindexedCount.sum() > 0 && !isCurrentlyIndexed(entry.getKey()))
+                .map(entry -> entry.getValue().toAdvice(entry.getKey()))
+                .sorted(Comparator.comparingDouble(IndexAdvice::totalLatencyMs).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private boolean isCurrentlyIndexed(UsageKey key) {
+        Set<String> types = indexTypes.get(key.property());
+        return types != null && types.contains(key.indexType());
+    }
+
+    /**
+     * @return {@code Label.property} for a plain property access on a labelled node variable, otherwise {@code null}
+     */
+    private static String labelledProperty(QueryTemplate template, String dbField) {
+        if (dbField == null) {
+            return null;
+        }
+        Matcher matcher = PROPERTY_ACCESS.matcher(dbField);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String label = template.getNodeLabel(matcher.group(1));
+        return label == null ? null : label + "." + matcher.group(2);
+    }
+
+    /**
+     * @return the index type that serves the operator, or {@code null} if no index can
+     */
+    private static String indexTypeFor(String op) {
+        if (op == null) {
+            return null;
+        }
+        return switch (op) {
+            case "EQ", "IN", "GT", "LT" -> RANGE;
+            case "CONTAINS" -> TEXT;
+            default -> null;
+        };
+    }
+
+    private static boolean isEquality(String op) {
+        return "EQ".equals(op) || "IN".equals(op);
+    }
+
+    private static String dbField(Object mapping) {
+        if (mapping instanceof String string) {
+            return string;
+        } else if (mapping instanceof Map<?, ?> map) {
+            return (String) map.get("dbField");
+        }
+        return null;
+    }
+
+    private record UsageKey(String query, String field, String property, String indexType) {
+    }
+
+    private static final class FilterUsage {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder unindexedCount = new LongAdder();
+        private final LongAdder unindexedNanos = new LongAdder();
+        private final LongAccumulator maxUnindexedNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos, boolean indexed) {
+            count.increment();
+            if (!indexed) {
+                unindexedCount.increment();
+                unindexedNanos.add(nanos);
+                maxUnindexedNanos.accumulate(nanos);
+            }
+        }
+
+        IndexAdvice toAdvice(UsageKey key) {
+            long unindexed = unindexedCount.sum();
+            double totalMs = unindexedNanos.sum() / 1_000_000.0;
+            String label = key.property().substring(0, key.property().indexOf('.'));
+            String property = key.property().substring(key.property().indexOf('.') + 1);
+            String statement = (TEXT.equals(key.indexType()) ? "CREATE TEXT INDEX" : "CREATE INDEX")
+                    + " IF NOT EXISTS FOR (n:" + label + ") ON (n." + property + ")";
+            return new IndexAdvice(key.query(), key.field(), label, property, key.indexType(), count.sum(), unindexed,
+                    totalMs, totalMs / unindexed, maxUnindexedNanos.get() / 1_000_000.0, statement);
+        }
+    }
+
+    /**
+     * One filter field that ran without a usable index.
+     *
+     * @param query          the {@code queries.yml} entry
+     * @param field          the filter field as sent by clients
+     * @param label          node label of the filtered property
+     * @param property       the filtered property
+     * @param indexType      index type that would serve the observed operators
+     * @param filterCount    executions filtering on the field
+     * @param unindexedCount of which ran without a usable index
+     * @param totalLatencyMs summed execution time of the unindexed executions
+     * @param meanLatencyMs  mean execution time of the unindexed executions
+     * @param maxLatencyMs   slowest unindexed execution
+     * @param suggestedIndex statement creating the missing index
+     */
+    public record IndexAdvice(String query, String field, String label, String property, String indexType,
+                              long filterCount, long unindexedCount, double totalLatencyMs, double meanLatencyMs, double maxLatencyMs,
+                              String suggestedIndex) {
+    }
+}
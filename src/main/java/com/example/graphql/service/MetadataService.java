@@ -1,62 +1,160 @@
 package com.example.graphql.service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.neo4j.driver.Record;
-import org.neo4j.driver.Result;
-import org.neo4j.driver.Session;
 import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import com.telstra.tni.commonutils.neo4j.DatabaseDriver;
-
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Enumeration literals used to translate filter values of {@code ENUM} field mappings.
+ * <p>
+ * Lookups read an immutable snapshot through a volatile reference and never lock. Snapshots are
+ * (re)built on a background thread: at startup with exponential backoff until Neo4j answers, then
+ * periodically, or on demand through {@link #refresh()}. A failed refresh keeps the previous snapshot.
+ */
 @Service
 @Slf4j
-public class MetadataService {
+public class MetadataService implements MeterBinder {
 
     private static final Logger logger = ESAPI.getLogger(MetadataService.class);
-    private final DatabaseDriver databaseDriver;
-    private Map<String, Map<String, Object>> enumCache = new HashMap<>();
+    private static final String ENUM_CYPHER = "MATCH (n:`_Enumeration`)-[:HAS_VALUE]-(e:_EnumerationLiteral) " +
+            "WITH n.name AS enumName, collect([e.name, e.value]) AS pairs " +
+            "WITH collect([enumName, apoc.map.fromPairs(pairs)]) AS enumPairs " +
+            "RETURN apoc.map.fromPairs(enumPairs) AS result";
+
+    private final ReadTransactions readTransactions;
+    private final Duration refreshInterval;
+    private final Duration initialRetryDelay;
+    private final Duration maxRetryDelay;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("enum-metadata-", 0).factory());
+    private volatile EnumSnapshot snapshot = EnumSnapshot.EMPTY;
 
-    public MetadataService(DatabaseDriver databaseDriver) {
-        this.databaseDriver = databaseDriver;
+    public MetadataService(ReadTransactions readTransactions,
+                           @Value("${app.metadata.refresh-interval:10m}") Duration refreshInterval,
+                           @Value("${app.metadata.retry.initial-delay:1s}") Duration initialRetryDelay,
+                           @Value("${app.metadata.retry.max-delay:1m}") Duration maxRetryDelay) {
+        this.readTransactions = readTransactions;
+        this.refreshInterval = refreshInterval;
+        this.initialRetryDelay = initialRetryDelay;
+        this.maxRetryDelay = maxRetryDelay;
     }
 
     @EventListener(ApplicationReadyEvent.class)
     public void loadEnums() {
-        String cypher = "MATCH (n:`_Enumeration`)-[:HAS_VALUE]-(e:_EnumerationLiteral) " +
-                "WITH n.name AS enumName, collect([e.name, e.value]) AS pairs " +
-                "WITH collect([enumName, apoc.map.fromPairs(pairs)]) AS enumPairs " +
-                "RETURN apoc.map.fromPairs(enumPairs) AS result";
-        
-        try (Session session = databaseDriver.sessionFor()) {
-            Result result = session.run(cypher);
-            if (result.hasNext()) {
-                Record record = result.next();
-                Map<String, Object> resultMap = record.get("result").asMap();
+        scheduler.execute(() -> loadWithRetry(initialRetryDelay));
+    }
+
+    /**
+     * Requests a background reload of the enumerations. Lookups keep using the current snapshot until
+     * the new one has been loaded completely.
+     */
+    public void refresh() {
+        scheduler.execute(this::reload);
+    }
+
+    public Object getEnumValue(String enumName, String literalName) {
+        Map<String, Object> literals = snapshot.enums().get(enumName);
+        return literals == null ? null : literals.get(literalName);
+    }
+
+    /**
+     * @return number of enumerations in the current snapshot
+     */
+    public int getEnumCount() {
+        return snapshot.enums().size();
+    }
+
+    /**
+     * @return when the current snapshot was loaded, or {@code null} if no load has succeeded yet
+     */
+    public Instant getLastLoadedAt() {
+        return snapshot.loadedAt();
+    }
+
+    /**
+     * @return how long the query building the current snapshot took
+     */
+    public Duration getLastLoadDuration() {
+        return snapshot.loadDuration();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("metadata.enums", this, MetadataService::getEnumCount)
+                .description("Enumerations in the current snapshot")
+                .register(registry);
+        TimeGauge.builder("metadata.enums.age", this, TimeUnit.SECONDS, service -> service.getLastLoadedAt() == null ? Double.NaN
+                        : Duration.between(service.getLastLoadedAt(), Instant.now()).toSeconds())
+                .description("Time since the current snapshot was loaded")
+                .register(registry);
+        TimeGauge.builder("metadata.enums.load.duration", this, TimeUnit.MILLISECONDS, service -> service.getLastLoadDuration().toMillis())
+                .description("Duration of the query that built the current snapshot")
+                .register(registry);
+    }
+
+    private void loadWithRetry(Duration delay) {
+        if (reload()) {
+            scheduler.scheduleWithFixedDelay(this::reload, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+        Duration nextDelay = delay.multipliedBy(2).compareTo(maxRetryDelay) > 0 ? maxRetryDelay : delay.multipliedBy(2);
+        logger.warning(Logger.EVENT_FAILURE, "Enum metadata not loaded, retrying in " + delay);
+        scheduler.schedule(() -> loadWithRetry(nextDelay), delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads all enumerations and atomically swaps the snapshot.
+     *
+     * @return whether the load succeeded
+     */
+    @SuppressWarnings("unchecked")
+    boolean reload() {
+        long start = System.nanoTime();
+        try {
+            List<Record> records = readTransactions.read("enumerations", null, tx -> tx.run(ENUM_CYPHER).list());
+            Map<String, Map<String, Object>> enums = new HashMap<>();
+            if (!records.isEmpty()) {
+                Map<String, Object> resultMap = records.get(0).get("result").asMap();
                 for (Map.Entry<String, Object> entry : resultMap.entrySet()) {
-                     enumCache.put(entry.getKey(), (Map<String, Object>) entry.getValue());
+                    enums.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<>((Map<String, Object>) entry.getValue())));
                 }
-                logger.info(Logger.EVENT_SUCCESS, "Loaded enums: " + enumCache.keySet());
             }
+            snapshot = new EnumSnapshot(Collections.unmodifiableMap(enums), Instant.now(), Duration.ofNanos(System.nanoTime() - start));
+            logger.info(Logger.EVENT_SUCCESS, "Loaded enums: " + enums.keySet());
+            return true;
         } catch (Exception e) {
             logger.error(Logger.EVENT_FAILURE, "Failed to load enums: " + e.getMessage(), e);
+            return false;
         }
     }
 
-    public Object getEnumValue(String enumName, String literalName) {
-        if (enumCache.containsKey(enumName)) {
-            Map<String, Object> literals = enumCache.get(enumName);
-            if (literals != null && literals.containsKey(literalName)) {
-                return literals.get(literalName);
-            }
-        }
-        return null;
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private record EnumSnapshot(Map<String, Map<String, Object>> enums, Instant loadedAt, Duration loadDuration) {
+        static final EnumSnapshot EMPTY = new EnumSnapshot(Collections.emptyMap(), null, Duration.ZERO);
     }
 }
@@ -0,0 +1,356 @@
+package com.example.graphql.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ObjectUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves {@code customFullReport} over several types at once, e.g. all equipment of a site.
+ * <p>
+ * The report query of every type runs on its own session through the {@link AsyncQueryExecutor}, already
+ * sorted and limited to the rows the requested page can need. Rows are handed to the calling thread through
+ * a small bounded queue per type, where a k-way merge on the requested sort applies the global offset and
+ * limit and stops every query as soon as the page is complete. No type's result is read beyond
+ * {@code offset + limit} rows and only the page itself is collected.
+ * <p>
+ * Sort fields must be mapped and returned under the same name by every type. Cursor pages are ordered by
+ * each type's {@code keyset} and their cursor holds the last key returned per type. Like single type pages
+ * they hold whole keys only.
+ */
+@Service
+@Slf4j
+public class MultiTypeReportService {
+
+    private static final Object SOURCE_DONE = new Object();
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private static final int SOURCE_BUFFER = 256;
+    private static final int DEFAULT_LIMIT = 1000;
+
+    private final QueryService queryService;
+    private final AsyncQueryExecutor asyncQueryExecutor;
+
+    public MultiTypeReportService(QueryService queryService, AsyncQueryExecutor asyncQueryExecutor) {
+        this.queryService = queryService;
+        this.asyncQueryExecutor = asyncQueryExecutor;
+    }
+
+    /**
+     * @param parameters report arguments; {@code offset} and {@code limit} apply to the merged rows
+     * @return a map shaped like {@code ReportResult} with the merged {@code rows}
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getReport(List<String> types, Map<String, Object> parameters) {
+        List<QueryTemplate> templates = templates(types);
+        List<Map<String, Object>> sort = parameters.get("sort") instanceof List<?> list ? (List<Map<String, Object>>) list : List.of();
+        for (Map<String, Object> entry : sort) {
+            for (QueryTemplate template : templates) {
+                if (!template.getFieldMappings().containsKey(entry.get("field"))) {
+                    throw new GraphQlApplicationException("INVALID_SORT", "Sort field " + entry.get("field")
+                            + " is not available for " + template.getName());
+                }
+            }
+        }
+        long offset = parameters.get("offset") instanceof Number number ? Math.max(number.longValue(), 0) : 0;
+        int limit = parameters.get("limit") instanceof Number number ? Math.max(number.intValue(), 0) : DEFAULT_LIMIT;
+
+        List<Map<String, Object>> sourceParameters = new ArrayList<>(types.size());
+        for (String type : types) {
+            Map<String, Object> typeParameters = new HashMap<>(parameters);
+            typeParameters.put("type", type);
+            typeParameters.put("offset", 0);
+            // every type may contribute the whole window before the page
+            typeParameters.put("limit", (int) Math.min(offset + limit, Integer.MAX_VALUE));
+            sourceParameters.add(typeParameters);
+        }
+        Comparator<Head> order = Comparator.comparing(Head::row, rowOrder(sort));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Head head : merge(templates, sourceParameters, false, order, offset, limit)) {
+            rows.add(head.row());
+        }
+        Map<String, Object> report = new HashMap<>();
+        report.put("rows", rows);
+        return report;
+    }
+
+    /**
+     * Cursor pagination over the merged types, see {@link QueryService#getReportPage}.
+     *
+     * @param after cursor returned as {@code endCursor} by the previous page, or {@code null} for the first page
+     * @return a map shaped like {@code ReportResult} with {@code rows} and {@code pageInfo}
+     */
+    public Map<String, Object> getReportPage(List<String> types, Map<String, Object> parameters, int first, String after) {
+        List<QueryTemplate> templates = templates(types);
+        for (QueryTemplate template : templates) {
+            if (template.getKeyset() == null) {
+                throw new GraphQlApplicationException("CURSOR_NOT_SUPPORTED", "Cursor pagination is not supported for query: " + template.getName());
+            }
+        }
+        if (!ObjectUtils.isEmpty(parameters.get("sort"))) {
+            throw new GraphQlApplicationException("CURSOR_NOT_SUPPORTED", "Cursor pagination cannot be combined with sort");
+        }
+        Map<String, Object> lastKeys = after == null ? new LinkedHashMap<>() : ReportCursor.decodeAll(after);
+
+        List<Map<String, Object>> sourceParameters = new ArrayList<>(types.size());
+        for (String type : types) {
+            Map<String, Object> typeParameters = new HashMap<>(parameters);
+            typeParameters.put("type", type);
+            typeParameters.remove("offset");
+            // Fetch one extra row to learn whether another page exists
+            typeParameters.put("limit", first + 1);
+            if (lastKeys.get(type) != null) {
+                typeParameters.put("keysetAfter", lastKeys.get(type));
+            }
+            sourceParameters.add(typeParameters);
+        }
+        Comparator<Head> order = (a, b) -> compareValues(key(templates, a), key(templates, b));
+        List<Head> heads = merge(templates, sourceParameters, true, order, 0, first + 1);
+
+        boolean hasNextPage = heads.size() > first;
+        if (hasNextPage) {
+            // A key may have several rows and each type's limit may have cut through its last one. Rows of one
+            // key of one type are adjacent in the merge, so the page ends with the last key whose rows are all there.
+            Head next = heads.get(first);
+            int end = first;
+            while (end > 0 && isSameKey(templates, heads.get(end - 1), next)) {
+                end--;
+            }
+            if (end > 0) {
+                heads = heads.subList(0, end);
+            } else {
+                // A single key with more rows than the page is returned whole
+                int source = next.source();
+                Object key = key(templates, next);
+                heads = rowsOfKey(templates.get(source), sourceParameters.get(source), source, key);
+                // the first merge's sources may still be winding down on the old parameters, so they are copied
+                List<Map<String, Object>> probeParameters = new ArrayList<>(sourceParameters);
+                Map<String, Object> sourceProbe = new HashMap<>(sourceParameters.get(source));
+                sourceProbe.put("keysetAfter", key);
+                probeParameters.set(source, sourceProbe);
+                hasNextPage = !merge(templates, probeParameters, true, order, 0, 1).isEmpty();
+            }
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(heads.size());
+        for (Head head : heads) {
+            rows.add(head.row());
+            lastKeys.put(types.get(head.source()), key(templates, head));
+        }
+        Map<String, Object> pageInfo = new HashMap<>();
+        pageInfo.put("pageSize", first);
+        pageInfo.put("hasNextPage", hasNextPage);
+        pageInfo.put("endCursor", rows.isEmpty() ? null : ReportCursor.encodeAll(lastKeys));
+        Map<String, Object> page = new HashMap<>();
+        page.put("rows", rows);
+        page.put("pageInfo", pageInfo);
+        return page;
+    }
+
+    private List<Head> rowsOfKey(QueryTemplate template, Map<String, Object> parameters, int source, Object key) {
+        Map<String, Object> keyParameters = new HashMap<>(parameters);
+        keyParameters.remove("keysetAfter");
+        keyParameters.put("keysetIn", List.of(key));
+        keyParameters.put("limit", Integer.MAX_VALUE);
+        List<Head> heads = new ArrayList<>();
+        for (Head head : merge(List.of(template), List.of(keyParameters), true, (a, b) -> 0, 0, Integer.MAX_VALUE)) {
+            heads.add(new Head(head.row(), source));
+        }
+        return heads;
+    }
+
+    private static Object key(List<QueryTemplate> templates, Head head) {
+        return head.row().get(templates.get(head.source()).getKeyset().column());
+    }
+
+    private static boolean isSameKey(List<QueryTemplate> templates, Head a, Head b) {
+        return a.source() == b.source() && Objects.equals(key(templates, a), key(templates, b));
+    }
+
+    /**
+     * @return the summed row count of all types, or {@code null} if one of them cannot be counted
+     */
+    public Long getTotalCount(List<String> types, Map<String, Object> parameters) {
+        long total = 0;
+        for (QueryTemplate template : templates(types)) {
+            Long count = queryService.getTotalCount(template.getName(), new HashMap<>(parameters));
+            if (count == null) {
+                return null;
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    private List<QueryTemplate> templates(List<String> types) {
+        List<QueryTemplate> templates = new ArrayList<>(types.size());
+        for (String type : types) {
+            QueryTemplate template = queryService.getTemplate(QueryService.reportQueryName(type));
+            if (template == null) {
+                throw new GraphQlApplicationException("INVALID_REPORT_TYPE", "Unknown report type: " + type);
+            }
+            templates.add(template);
+        }
+        return templates;
+    }
+
+    /**
+     * Starts every source and merges their rows in {@code order}, ties going to the earlier source.
+     *
+     * @param skip merged rows to drop before the first collected one
+     * @param take merged rows to collect
+     * @return the collected rows with their source
+     */
+    private List<Head> merge(List<QueryTemplate> templates, List<Map<String, Object>> sourceParameters, boolean keyset,
+                             Comparator<Head> order, long skip, int take) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<BlockingQueue<Object>> queues = new ArrayList<>(templates.size());
+        for (int source = 0; source < templates.size(); source++) {
+            BlockingQueue<Object> queue = new ArrayBlockingQueue<>(SOURCE_BUFFER);
+            queues.add(queue);
+            String queryName = templates.get(source).getName();
+            Map<String, Object> parameters = sourceParameters.get(source);
+            asyncQueryExecutor.submit(() -> {
+                queryService.forEachReportRow(queryName, parameters, keyset, row -> offer(queue, row, cancelled));
+                return null;
+            }).whenComplete((ignored, error) -> offer(queue, error == null ? SOURCE_DONE
+                    : error instanceof CompletionException && error.getCause() != null ? error.getCause() : error, cancelled));
+        }
+        List<Head> merged = new ArrayList<>(Math.min(take, DEFAULT_LIMIT));
+        try {
+            PriorityQueue<Head> heads = new PriorityQueue<>(templates.size(), order.thenComparingInt(Head::source));
+            for (int source = 0; source < queues.size(); source++) {
+                addNext(heads, queues.get(source), source);
+            }
+            long skipped = 0;
+            while (merged.size() < take && !heads.isEmpty()) {
+                Head head = heads.poll();
+                if (skipped < skip) {
+                    skipped++;
+                } else {
+                    merged.add(head);
+                }
+                addNext(heads, queues.get(head.source()), head.source());
+            }
+            return merged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Report interrupted", e);
+        } finally {
+            // stops sources still reading once the page is complete or the merge failed
+            cancelled.set(true);
+        }
+    }
+
+    private static void addNext(PriorityQueue<Head> heads, BlockingQueue<Object> queue, int source) throws InterruptedException {
+        Object item = queue.take();
+        if (item == SOURCE_DONE) {
+            return;
+        }
+        if (item instanceof GraphQlApplicationException error) {
+            throw error;
+        }
+        if (item instanceof Throwable error) {
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Error executing query: " + error.getMessage(), error);
+        }
+        heads.add(new Head(castRow(item), source));
+    }
+
+    private static boolean offer(BlockingQueue<Object> queue, Object item, AtomicBoolean cancelled) {
+        try {
+            while (!cancelled.get()) {
+                if (queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * @param sort the {@code sort} argument of a report
+     * @return the order of report rows under {@code ORDER BY} on the sort fields, rows equal on all of them comparing equal
+     */
+    static Comparator<Map<String, Object>> rowOrder(List<Map<String, Object>> sort) {
+        return (a, b) -> {
+            for (Map<String, Object> entry : sort) {
+                String field = (String) entry.get("field");
+                int compared = compareValues(a.get(field), b.get(field));
+                if (compared != 0) {
+                    return "DESC".equals(entry.get("direction")) ? -compared : compared;
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * @return whether Cypher compares the values with {@code <} and {@code >} rather than yielding {@code null}
+     */
+    static boolean isComparable(Object a, Object b) {
+        return a != null && b != null && rank(a) == rank(b);
+    }
+
+    /**
+     * Orders values as Cypher's {@code ORDER BY} does for the types reports return: strings before booleans
+     * before numbers, and {@code null} last in ascending order.
+     */
+    static int compareValues(Object a, Object b) {
+        int rank = Integer.compare(rank(a), rank(b));
+        if (rank != 0) {
+            return rank;
+        }
+        if (a instanceof String left && b instanceof String right) {
+            return left.compareTo(right);
+        } else if (a instanceof Boolean left && b instanceof Boolean right) {
+            return left.compareTo(right);
+        } else if (a instanceof Long left && b instanceof Long right) {
+            return left.compareTo(right);
+        } else if (a instanceof Number left && b instanceof Number right) {
+            return Double.compare(left.doubleValue(), right.doubleValue());
+        } else if (a == null || b == null) {
+            return 0;
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private static int rank(Object value) {
+        if (value instanceof String) {
+            return 1;
+        } else if (value instanceof Boolean) {
+            return 2;
+        } else if (value instanceof Number) {
+            return 3;
+        } else if (value == null) {
+            return 4;
+        }
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castRow(Object item) {
+        return (Map<String, Object>) item;
+    }
+
+    /**
+     * @param row    the next unmerged row of a source
+     * @param source index of the type the row belongs to
+     */
+    private record Head(Map<String, Object> row, int source) {
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.graphql.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import graphql.language.Argument;
+import graphql.language.ArrayValue;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.InlineFragment;
+import graphql.language.IntValue;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.language.VariableReference;
+import graphql.schema.GraphQLEnumType;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLFieldsContainer;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLScalarType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+
+/**
+ * Estimates how expensive an operation is before it runs.
+ * <p>
+ * {@link #calculate} prices an operation in rate limit tokens: reports are charged per block of requested
+ * rows, named queries a fixed amount plus their rows, and generic fetches one token plus one per nested
+ * relationship selection. {@link #calculateComplexity} walks the selection against the schema instead and
+ * yields the complexity and depth checked against the execution budget.
+ */
+@Component
+public class QueryCostCalculator {
+
+    static final Set<String> REPORT_FIELDS = Set.of("customFullReport", "customFullReportStream");
+    private static final long DEFAULT_REPORT_ROWS = 1000;
+
+    private final QueryService queryService;
+
+    @Value("${app.rate-limit.cost.report-base:5}")
+    private int reportBaseCost;
+
+    @Value("${app.rate-limit.cost.rows-per-token:100}")
+    private int rowsPerToken;
+
+    @Value("${app.rate-limit.cost.named-query:2}")
+    private int namedQueryCost;
+
+    @Value("${app.rate-limit.cost.relationship-field:1}")
+    private int relationshipFieldCost;
+
+    @Value("${app.export.partitions:4}")
+    private int exportPartitions;
+
+    @Value("${app.graphql.complexity.default-list-size:10}")
+    private int defaultListSize;
+
+    @Value("${app.graphql.complexity.default-report-rows:1000}")
+    private int defaultReportRows;
+
+    public QueryCostCalculator(QueryService queryService) {
+        this.queryService = queryService;
+    }
+
+    public long calculate(OperationDefinition operation, Map<String, FragmentDefinition> fragments, Map<String, Object> variables) {
+        long cost = 0;
+        for (Field field : fields(operation.getSelectionSet(), fragments)) {
+            cost = saturatedAdd(cost, fieldCost(field, fragments, variables));
+        }
+        return Math.max(cost, 1);
+    }
+
+    /**
+     * Prices a report export, whose size is unknown before it runs: every key range partition is charged
+     * as a report of the default size.
+     */
+    public int exportCost() {
+        long cost = saturatedMultiply(Math.max(exportPartitions, 1), saturatedAdd(reportBaseCost, rowTokens(DEFAULT_REPORT_ROWS)));
+        return (int) Math.min(cost, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Computes the complexity of an operation: every object field costs one, multiplied by the number of
+     * elements its list parents may produce. Lists use their {@code first}/{@code limit} argument, otherwise
+     * the default list size (relationship collections) or the default report size (reports and JSON root
+     * fields, which are unbounded named queries).
+     */
+    public QueryComplexity calculateComplexity(GraphQLSchema schema, OperationDefinition operation,
+                                               Map<String, FragmentDefinition> fragments, Map<String, Object> variables) {
+        GraphQLObjectType rootType = switch (operation.getOperation()) {
+            case MUTATION -> schema.getMutationType();
+            case SUBSCRIPTION -> schema.getSubscriptionType();
+            default -> schema.getQueryType();
+        };
+        return selectionComplexity(rootType, operation.getSelectionSet(), fragments, variables, true);
+    }
+
+    private QueryComplexity selectionComplexity(GraphQLType parentType, SelectionSet selectionSet, Map<String, FragmentDefinition> fragments,
+                                                Map<String, Object> variables, boolean root) {
+        long complexity = 0;
+        int depth = 0;
+        for (Field field : fields(selectionSet, fragments)) {
+            GraphQLFieldDefinition fieldDef = parentType instanceof GraphQLFieldsContainer container
+                    ? container.getFieldDefinition(field.getName()) : null;
+            if (field.getName().startsWith("__") || fieldDef == null) {
+                continue;
+            }
+            GraphQLType namedType = GraphQLTypeUtil.unwrapAll(fieldDef.getType());
+            boolean list = GraphQLTypeUtil.isList(GraphQLTypeUtil.unwrapNonNull(fieldDef.getType()));
+            QueryComplexity child = field.getSelectionSet() == null ? QueryComplexity.NONE
+                    : selectionComplexity(namedType, field.getSelectionSet(), fragments, variables, false);
+
+            long fieldComplexity;
+            if (root && (REPORT_FIELDS.contains(field.getName()) || namedType instanceof GraphQLScalarType)) {
+                // reports and named queries are charged per row they may return
+                fieldComplexity = saturatedMultiply(requestedRows(field, variables, defaultReportRows), 1 + child.complexity());
+            } else {
+                long weight = namedType instanceof GraphQLScalarType || namedType instanceof GraphQLEnumType ? 0 : 1;
+                long multiplier = list ? requestedRows(field, variables, defaultListSize) : 1;
+                fieldComplexity = saturatedMultiply(multiplier, weight + child.complexity());
+            }
+            complexity = saturatedAdd(complexity, fieldComplexity);
+            depth = Math.max(depth, 1 + child.depth());
+        }
+        return new QueryComplexity(complexity, depth);
+    }
+
+    private static long requestedRows(Field field, Map<String, Object> variables, long defaultRows) {
+        Long first = longArgument(field, "first", variables);
+        Long limit = longArgument(field, "limit", variables);
+        return Math.max(first != null ? first : limit != null ? limit : defaultRows, 0);
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        return high != 0 || low < 0 ? Long.MAX_VALUE : low;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private long fieldCost(Field field, Map<String, FragmentDefinition> fragments, Map<String, Object> variables) {
+        String name = field.getName();
+        if (name.startsWith("__")) {
+            return 0;
+        }
+        if (REPORT_FIELDS.contains(name)) {
+            Long first = longArgument(field, "first", variables);
+            Long limit = longArgument(field, "limit", variables);
+            long rows = first != null ? first : limit != null ? limit : DEFAULT_REPORT_ROWS;
+            // every type of a merged report runs its own query over the requested rows
+            return saturatedMultiply(typeCount(field, variables), saturatedAdd(reportBaseCost, rowTokens(rows)));
+        }
+        if ("runQuery".equals(name) || queryService.getQueryNames().contains(name)) {
+            Long limit = longArgument(field, "limit", variables);
+            return saturatedAdd(namedQueryCost, limit != null ? rowTokens(limit) : 0);
+        }
+        return 1 + relationshipFieldCost * relationshipCount(field.getSelectionSet(), fragments);
+    }
+
+    private static int typeCount(Field field, Map<String, Object> variables) {
+        for (Argument argument : field.getArguments()) {
+            if (!argument.getName().equals("type")) {
+                continue;
+            }
+            if (argument.getValue() instanceof ArrayValue array) {
+                return Math.max(array.getValues().size(), 1);
+            } else if (argument.getValue() instanceof VariableReference reference
+                    && variables.get(reference.getName()) instanceof List<?> types) {
+                return Math.max(types.size(), 1);
+            }
+        }
+        return 1;
+    }
+
+    private long rowTokens(long rows) {
+        return Math.ceilDiv(Math.max(rows, 0), rowsPerToken);
+    }
+
+    private int relationshipCount(SelectionSet selectionSet, Map<String, FragmentDefinition> fragments) {
+        int count = 0;
+        for (Field field : fields(selectionSet, fragments)) {
+            if (field.getSelectionSet() != null) {
+                count += 1 + relationshipCount(field.getSelectionSet(), fragments);
+            }
+        }
+        return count;
+    }
+
+    static List<Field> fields(SelectionSet selectionSet, Map<String, FragmentDefinition> fragments) {
+        List<Field> fields = new ArrayList<>();
+        if (selectionSet == null) {
+            return fields;
+        }
+        for (Selection<?> selection : selectionSet.getSelections()) {
+            if (selection instanceof Field field) {
+                fields.add(field);
+            } else if (selection instanceof InlineFragment inlineFragment) {
+                fields.addAll(fields(inlineFragment.getSelectionSet(), fragments));
+            } else if (selection instanceof FragmentSpread fragmentSpread) {
+                FragmentDefinition fragment = fragments.get(fragmentSpread.getName());
+                if (fragment != null) {
+                    fields.addAll(fields(fragment.getSelectionSet(), fragments));
+                }
+            }
+        }
+        return fields;
+    }
+
+    static Long longArgument(Field field, String name, Map<String, Object> variables) {
+        for (Argument argument : field.getArguments()) {
+            if (!argument.getName().equals(name)) {
+                continue;
+            }
+            if (argument.getValue() instanceof IntValue intValue) {
+                return intValue.getValue().longValue();
+            } else if (argument.getValue() instanceof VariableReference reference
+                    && variables.get(reference.getName()) instanceof Number number) {
+                return number.longValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param complexity estimated number of objects the operation may resolve
+     * @param depth      deepest nesting of selections
+     */
+    public record QueryComplexity(long complexity, int depth) {
+        static final QueryComplexity NONE = new QueryComplexity(0, 0);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.graphql.service;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters describing where the time of a query goes.
+ * <p>
+ * {@code graphql.query.stage} is a timer tagged by query (named query or root field) and {@link Stage},
+ * {@code graphql.query.rows} the distribution of returned rows per query, {@code graphql.query.coalesced}
+ * counts executions saved by joining an identical one in flight, and
+ * {@code graphql.rate-limit.rejections} counts rejected requests by reason. Meters are cached per tag
+ * combination so that recording on the hot path does not rebuild meter ids.
+ */
+@Component
+public class QueryMetrics {
+
+    public enum Stage {
+        /** waiting for a query permit of the {@link AsyncQueryExecutor} */
+        QUEUE,
+        /** rendering the cypher text and binding parameters */
+        BUILD,
+        /** acquiring a pooled connection, running the query in Neo4j and fetching the records */
+        EXECUTE,
+        /** converting driver records into response rows */
+        CONVERT;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Map<String, Timer>> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<String, DistributionSummary> rowSummaries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectionCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> coalescedCounters = new ConcurrentHashMap<>();
+
+    public QueryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, new ConcurrentHashMap<>());
+        }
+    }
+
+    public void recordStage(String query, Stage stage, long nanos) {
+        stageTimers.get(stage).computeIfAbsent(query, name -> Timer.builder("graphql.query.stage")
+                        .description("Time spent per query pipeline stage")
+                        .tag("query", name)
+                        .tag("stage", stage.tag)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> T time(String query, Stage stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            recordStage(query, stage, System.nanoTime() - start);
+        }
+    }
+
+    public void recordRows(String query, int rows) {
+        rowSummaries.computeIfAbsent(query, name -> DistributionSummary.builder("graphql.query.rows")
+                        .description("Rows returned per query execution")
+                        .baseUnit("rows")
+                        .tag("query", name)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(rows);
+    }
+
+    /**
+     * Records a query call that shared the result of an identical execution instead of running its own.
+     */
+    public void recordCoalesced(String query) {
+        coalescedCounters.computeIfAbsent(query, name -> Counter.builder("graphql.query.coalesced")
+                        .description("Query executions saved by waiting for an identical execution in flight")
+                        .tag("query", name)
+                        .register(registry))
+                .increment();
+    }
+
+    /**
+     * @param reason {@code admission} when the request was refused before parsing, {@code cost} when
+     *               the operation's cost could not be paid
+     */
+    public void recordRateLimitRejection(String reason) {
+        rejectionCounters.computeIfAbsent(reason, name -> Counter.builder("graphql.rate-limit.rejections")
+                        .description("Requests rejected by the rate limiter")
+                        .tag("reason", name)
+                        .register(registry))
+                .increment();
+    }
+}
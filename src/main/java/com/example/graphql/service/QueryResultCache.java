@@ -0,0 +1,421 @@
+package com.example.graphql.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Result cache in front of named and report queries that declare a {@code cache} policy in {@code queries.yml}.
+ * <p>
+ * The first tier is an in-memory cache bounded by weight (roughly the number of cached rows) with a
+ * per-entry lifetime of {@code ttl + staleWhileRevalidate}. Stale entries are still served while a single
+ * background refresh reloads them. The optional second tier writes each result to local disk and reads it
+ * back through a memory-mapped file, so a restarted instance can serve warm results before touching Neo4j.
+ * Disk writes run on a background thread; a file is deleted when its entry is evicted from memory, and the
+ * directory is swept every minute down to {@code app.query-cache.disk.max-size}, oldest files first, and of
+ * files older than {@code app.query-cache.disk.max-age}.
+ */
+@Component
+@Slf4j
+public class QueryResultCache implements MeterBinder {
+
+    private static final long MAX_COUNTS = 10_000;
+    private static final ObjectInputFilter DISK_FILTER =
+            ObjectInputFilter.Config.createFilter("java.base/*;org.neo4j.driver.**;com.example.graphql.**;!*");
+
+    private final Cache<String, CachedResult> memory;
+    private final Cache<String, Long> counts;
+    private final AsyncQueryExecutor asyncQueryExecutor;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Path diskDirectory;
+    private final long diskMaxBytes;
+    private final Duration diskMaxAge;
+    private final ScheduledExecutorService diskExecutor;
+
+    public QueryResultCache(AsyncQueryExecutor asyncQueryExecutor,
+                            @Value("${app.query-cache.max-weight:200000}") long maxWeight,
+                            @Value("${app.query-cache.disk.enabled:false}") boolean diskEnabled,
+                            @Value("${app.query-cache.disk.directory:${java.io.tmpdir}/graphql-query-cache}") String diskDirectory,
+                            @Value("${app.query-cache.disk.max-size:256MB}") DataSize diskMaxSize,
+                            @Value("${app.query-cache.disk.max-age:1h}") Duration diskMaxAge,
+                            @Value("${app.query-cache.count-ttl:30s}") Duration countTtl) {
+        this.asyncQueryExecutor = asyncQueryExecutor;
+        this.diskDirectory = diskEnabled ? Paths.get(diskDirectory) : null;
+        this.diskMaxBytes = diskMaxSize.toBytes();
+        this.diskMaxAge = diskMaxAge;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(MAX_COUNTS)
+                .expireAfterWrite(countTtl)
+                .recordStats()
+                .build();
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String key, CachedResult value) -> 1 + rowCount(value.value()))
+                .expireAfter(new Expiry<String, CachedResult>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResult value, long currentTime) {
+                        return value.remainingNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResult value, long currentTime, long currentDuration) {
+                        return value.remainingNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResult value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .removalListener((String key, CachedResult value, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        deleteFromDisk(key);
+                    }
+                })
+                .recordStats()
+                .build();
+        if (this.diskDirectory != null) {
+            try {
+                Files.createDirectories(this.diskDirectory);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot create query cache directory " + diskDirectory, e);
+            }
+            this.diskExecutor = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().daemon().name("query-cache-disk-", 0).factory());
+            diskExecutor.scheduleWithFixedDelay(this::sweepDisk, 0, 1, TimeUnit.MINUTES);
+        } else {
+            this.diskExecutor = null;
+        }
+    }
+
+    /**
+     * Builds a cache key from the query name and a canonical form of the given parts, so that
+     * parameter maps with the same content but different iteration order share an entry.
+     */
+    static String cacheKey(String queryName, Object... parts) {
+        StringBuilder key = new StringBuilder(queryName);
+        for (Object part : parts) {
+            key.append('|');
+            appendCanonical(key, part);
+        }
+        return key.toString();
+    }
+
+    Object get(String key, QueryTemplate.CachePolicy policy, Supplier<Object> loader) {
+        long now = System.currentTimeMillis();
+        CachedResult cached = memory.getIfPresent(key);
+        if (cached == null && diskDirectory != null) {
+            cached = readFromDisk(key);
+            if (cached != null && cached.isServable(now)) {
+                memory.put(key, cached);
+            }
+        }
+        if (cached != null && cached.isServable(now)) {
+            if (!cached.isFresh(now)) {
+                refreshInBackground(key, policy, loader);
+            }
+            return cached.value();
+        }
+        Object value = loader.get();
+        store(key, policy, value);
+        return value;
+    }
+
+    /**
+     * Report row counts are cached for a short fixed time regardless of the query's cache policy, since
+     * clients only use them for "showing x of N". Concurrent requests for the same key share one load.
+     *
+     * @return the cached or loaded count, {@code null} if the loader returned {@code null}
+     */
+    Long getCount(String key, Supplier<Long> loader) {
+        return counts.get(key, ignored -> loader.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, memory, "queryResults");
+        CaffeineCacheMetrics.monitor(registry, counts, "queryCounts");
+    }
+
+    public long estimatedSize() {
+        return memory.estimatedSize();
+    }
+
+    public CacheStats getCacheStats() {
+        return memory.stats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (diskExecutor != null) {
+            diskExecutor.shutdown();
+        }
+    }
+
+    private void refreshInBackground(String key, QueryTemplate.CachePolicy policy, Supplier<Object> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        // Removed once the future completes, which also covers a task that never ran for lack of a query permit
+        asyncQueryExecutor.submit(() -> {
+            store(key, policy, loader.get());
+            return null;
+        }).whenComplete((ignored, e) -> {
+            refreshing.remove(key);
+            if (e != null) {
+                log.warn("Background refresh failed for {}: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    private void store(String key, QueryTemplate.CachePolicy policy, Object value) {
+        long now = System.currentTimeMillis();
+        long freshUntil = now + policy.ttl().toMillis();
+        CachedResult cached = new CachedResult(value, freshUntil, freshUntil + policy.staleWhileRevalidate().toMillis());
+        memory.put(key, cached);
+        if (diskDirectory != null) {
+            diskExecutor.execute(() -> writeToDisk(key, cached));
+        }
+    }
+
+    private void writeToDisk(String key, CachedResult cached) {
+        Path file = diskFile(key);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeUTF(key);
+                out.writeObject(new CachedResult(serializableCopy(cached.value()), cached.freshUntil(), cached.staleUntil()));
+            }
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write cached result for {} to disk: {}", key, e.getMessage());
+            deleteQuietly(temp);
+        }
+    }
+
+    private void deleteFromDisk(String key) {
+        if (diskDirectory != null) {
+            // queued behind pending writes of the key, so a write cannot bring the file back
+            diskExecutor.execute(() -> deleteQuietly(diskFile(key)));
+        }
+    }
+
+    /**
+     * Deletes files older than {@code max-age} and then the oldest files until the directory fits {@code max-size}.
+     * Files of entries still in memory may go too; those entries are only served from memory until rewritten.
+     */
+    void sweepDisk() {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(diskDirectory)) {
+            files = listing.filter(Files::isRegularFile).toList();
+        } catch (IOException e) {
+            log.warn("Could not list query cache directory {}: {}", diskDirectory, e.getMessage());
+            return;
+        }
+        FileTime expired = FileTime.fromMillis(System.currentTimeMillis() - diskMaxAge.toMillis());
+        List<DiskFile> kept = new ArrayList<>();
+        long total = 0;
+        for (Path file : files) {
+            try {
+                FileTime modified = Files.getLastModifiedTime(file);
+                if (modified.compareTo(expired) < 0) {
+                    deleteQuietly(file);
+                } else {
+                    long size = Files.size(file);
+                    kept.add(new DiskFile(file, modified, size));
+                    total += size;
+                }
+            } catch (IOException e) {
+                // deleted concurrently
+            }
+        }
+        kept.sort(Comparator.comparing(DiskFile::modified));
+        for (int i = 0; i < kept.size() && total > diskMaxBytes; i++) {
+            deleteQuietly(kept.get(i).path());
+            total -= kept.get(i).size();
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    private CachedResult readFromDisk(String key) {
+        Path file = diskFile(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(buffer))) {
+                in.setObjectInputFilter(DISK_FILTER);
+                // Guard against hash collisions by comparing the stored key
+                return key.equals(in.readUTF()) ? (CachedResult) in.readObject() : null;
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.debug("Could not read cached result for {} from disk: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path diskFile(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return diskDirectory.resolve(HexFormat.of().formatHex(digest) + ".bin");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Copies lists and maps into serializable collections, e.g. the {@code subList} views report pages are cut with.
+     * Rows of {@link RecordProjector} are serializable and kept as they are.
+     */
+    static Object serializableCopy(Object value) {
+        if (value instanceof RecordProjector.Row) {
+            return value;
+        } else if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(element -> copy.add(serializableCopy(element)));
+            return copy;
+        } else if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(k, serializableCopy(v)));
+            return copy;
+        }
+        return value;
+    }
+
+    private static int rowCount(Object value) {
+        if (value instanceof List<?> rows) {
+            return rows.size();
+        } else if (value instanceof Map<?, ?> page && page.get("rows") instanceof List<?> rows) {
+            return rows.size();
+        }
+        return 1;
+    }
+
+    private static void appendCanonical(StringBuilder key, Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), v));
+            key.append('{');
+            sorted.forEach((k, v) -> {
+                key.append(k).append('=');
+                appendCanonical(key, v);
+                key.append(',');
+            });
+            key.append('}');
+        } else if (value instanceof List<?> list) {
+            key.append('[');
+            for (Object element : list) {
+                appendCanonical(key, element);
+                key.append(',');
+            }
+            key.append(']');
+        } else if (value instanceof String string) {
+            key.append('"').append(string.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        } else {
+            key.append(value);
+        }
+    }
+
+    /**
+     * @param value      the cached query result
+     * @param freshUntil epoch millis until which the value is served without refreshing
+     * @param staleUntil epoch millis until which the value may still be served while refreshing
+     */
+    record CachedResult(Object value, long freshUntil, long staleUntil) implements Serializable {
+
+        boolean isFresh(long now) {
+            return now < freshUntil;
+        }
+
+        boolean isServable(long now) {
+            return now < staleUntil;
+        }
+
+        long remainingNanos() {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, staleUntil - System.currentTimeMillis()));
+        }
+    }
+
+    private record DiskFile(Path path, FileTime modified, long size) {
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
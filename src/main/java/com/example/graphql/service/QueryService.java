@@ -3,100 +3,854 @@ package com.example.graphql.service;
 import java.io.InputStream;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import com.example.graphql.exceptions.GraphQlApplicationException;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
-import org.neo4j.driver.Session;
-import org.neo4j.driver.Value;
-import org.neo4j.driver.types.Node;
 import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ObjectUtils;
 import org.yaml.snakeyaml.Yaml;
 
-import com.telstra.tni.commonutils.neo4j.DatabaseDriver;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 
 @Service
 @Slf4j
-public class QueryService {
+public class QueryService implements MeterBinder {
 
     private static final Logger logger = ESAPI.getLogger(QueryService.class);
-    private final Map<String, Map<String, Object>> queries;
-    private final DatabaseDriver databaseDriver;
+    private static final int RENDERED_CYPHER_CACHE_SIZE = 1024;
+    private static final int PROJECTOR_CACHE_SIZE = 256;
+    private static final String SKIP_LIMIT_CLAUSE = " SKIP $offset LIMIT $limit";
+    private static final String KEYSET_AFTER_PARAM = "keysetAfter";
+    private static final String KEYSET_FROM_PARAM = "keysetFrom";
+    private static final String KEYSET_TO_PARAM = "keysetTo";
+    private static final String KEYSET_IN_PARAM = "keysetIn";
+    private static final String COLUMNS_PARAM = "columns";
+    private static final Set<String> COUNT_IGNORED_PARAMETERS = Set.of("limit", "offset", "sort", "first", "after", COLUMNS_PARAM,
+            KEYSET_AFTER_PARAM);
+
+    private final Map<String, QueryTemplate> templates;
+    private final Cache<String, String> renderedCypherCache;
+    private final Cache<List<String>, RecordProjector> projectors;
+    private final ReadTransactions readTransactions;
     private final MetadataService metadataService;
+    private final QueryResultCache queryResultCache;
+    private final QueryMetrics queryMetrics;
+    private final IndexAdvisor indexAdvisor;
+    private final AsyncQueryExecutor asyncQueryExecutor;
+
+    private final Map<String, CompletableFuture<List<Map<String, Object>>>> inFlightExecutions = new ConcurrentHashMap<>();
 
-    public QueryService(DatabaseDriver databaseDriver, MetadataService metadataService) {
-        this.databaseDriver = databaseDriver;
+    @Value("${app.query.max-sort-window:10000}")
+    private long maxSortWindow;
+
+    @Value("${app.query.coalesce-executions:true}")
+    private boolean coalesceExecutions;
+
+    public QueryService(ReadTransactions readTransactions, MetadataService metadataService, QueryResultCache queryResultCache,
+                        QueryMetrics queryMetrics, IndexAdvisor indexAdvisor, AsyncQueryExecutor asyncQueryExecutor) {
+        this.readTransactions = readTransactions;
         this.metadataService = metadataService;
+        this.queryResultCache = queryResultCache;
+        this.queryMetrics = queryMetrics;
+        this.indexAdvisor = indexAdvisor;
+        this.asyncQueryExecutor = asyncQueryExecutor;
         Yaml yaml = new Yaml();
         InputStream inputStream = this.getClass()
                 .getClassLoader()
                 .getResourceAsStream("queries.yml");
-        this.queries = yaml.load(inputStream);
+        Map<String, Map<String, Object>> queries = yaml.load(inputStream);
+        Map<String, QueryTemplate> compiled = new LinkedHashMap<>();
+        queries.forEach((name, definition) -> compiled.put(name, QueryTemplate.compile(name, definition)));
+        this.templates = Collections.unmodifiableMap(compiled);
+        this.renderedCypherCache = Caffeine.newBuilder()
+                .maximumSize(RENDERED_CYPHER_CACHE_SIZE)
+                .recordStats()
+                .build();
+        this.projectors = Caffeine.newBuilder()
+                .maximumSize(PROJECTOR_CACHE_SIZE)
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, renderedCypherCache, "renderedCypher");
     }
 
     public Set<String> getQueryNames() {
-        return queries.keySet();
+        return templates.keySet();
+    }
+
+    /**
+     * @return the {@code queries.yml} entry backing {@code customFullReport} for the given type
+     */
+    public static String reportQueryName(String type) {
+        return "get" + type + "Report";
+    }
+
+    public boolean hasQuery(String queryName) {
+        return templates.containsKey(queryName);
+    }
+
+    /**
+     * @return the compiled template for the query, or {@code null} if there is no such query
+     */
+    QueryTemplate getTemplate(String queryName) {
+        return templates.get(queryName);
     }
 
     public Object getQueryResult(String queryName, Map<String, Object> parameters) {
-        List<Map<String, Object>> rows = new ArrayList<>();
         logger.info(Logger.EVENT_SUCCESS, "QueryService.getQueryResult called with queryName: " + queryName + ", parameters: " + parameters);
-        try (Session session = databaseDriver.sessionFor()) {
-            Map<String, Object> queryDefinition = queries.get(queryName);
-            String cypher = (String) queryDefinition.get("cypher");
-            Map<String, Object> fieldMappings = new HashMap<>();
-            
-            // Handle field mappings and WHERE clause placeholders
-            for (int cnt = 1; cnt < 5; cnt++) {
-                Map<String, Object> fieldMapping = (Map<String, Object>) queryDefinition.get("fieldMapping" + cnt);
-                if (!ObjectUtils.isEmpty(fieldMapping)) {
-                    // Build WHERE clause from filters
-                    String whereClause = buildWhereClause(parameters, fieldMapping);
-                    cypher = cypher.replace("{{WHERE_CLAUSE_" + cnt + "}}", whereClause);
-                    fieldMappings.putAll(fieldMapping);
-                } else {
-                    // Replace unused placeholders with empty string
-                    cypher = cypher.replace("{{WHERE_CLAUSE_" + cnt + "}}", "");
-                }
+        QueryTemplate.CachePolicy cachePolicy = getCachePolicy(queryName);
+        if (cachePolicy == null) {
+            return execute(queryName, parameters, null);
+        }
+        return queryResultCache.get(QueryResultCache.cacheKey(queryName, parameters), cachePolicy,
+                () -> execute(queryName, parameters, null));
+    }
+
+    /**
+     * Fetches one page of a report using keyset pagination. The page is cut with a seek predicate on
+     * the template's {@code keyset} at the first WHERE_CLAUSE stage instead of SKIP, so deep pages cost
+     * the same as the first one.
+     * <p>
+     * A key may have several rows. Pages hold whole keys only, so a page can be shorter than {@code first},
+     * and a key with more than {@code first} rows fills a page of its own.
+     *
+     * @param first page size
+     * @param after cursor returned as {@code endCursor} by the previous page, or {@code null} for the first page
+     * @return a map shaped like {@code ReportResult} with {@code rows} and {@code pageInfo}
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getReportPage(String queryName, Map<String, Object> parameters, int first, String after) {
+        logger.info(Logger.EVENT_SUCCESS, "QueryService.getReportPage called with queryName: " + queryName + ", first: " + first + ", parameters: " + parameters);
+        QueryTemplate.CachePolicy cachePolicy = getCachePolicy(queryName);
+        if (cachePolicy == null) {
+            return loadReportPage(queryName, parameters, first, after);
+        }
+        return (Map<String, Object>) queryResultCache.get(QueryResultCache.cacheKey(queryName, parameters, first, after), cachePolicy,
+                () -> loadReportPage(queryName, parameters, first, after));
+    }
+
+    /**
+     * Counts the rows a report pages over, see {@link #renderCountCypher}. Counts are cached per query,
+     * filters and dynamic placeholders for a short time; paging arguments and sort do not affect them.
+     *
+     * @param parameters report arguments; filter values are bound into this map
+     * @return the row count, or {@code null} if the query cannot be counted
+     */
+    public Long getTotalCount(String queryName, Map<String, Object> parameters) {
+        QueryTemplate template = templates.get(queryName);
+        if (template == null) {
+            return null;
+        }
+        Map<String, Object> countKey = new HashMap<>(parameters);
+        COUNT_IGNORED_PARAMETERS.forEach(countKey::remove);
+        return queryResultCache.getCount(QueryResultCache.cacheKey(queryName, "count", countKey), () -> {
+            String cypher = renderCountCypher(template, parameters);
+            if (cypher == null) {
+                return null;
+            }
+            logger.debug(Logger.EVENT_UNSPECIFIED, "Counting cypher: "+ String.format("%s  parameters %s", cypher, parameters));
+            try {
+                return queryMetrics.time(queryName + ".count", QueryMetrics.Stage.EXECUTE, () -> readTransactions.read(queryName + ".count",
+                        template.getTimeout(), tx -> tx.run(cypher, parameters).single().get("totalCount").asLong()));
+            } catch (Exception e) {
+                logger.error(Logger.EVENT_FAILURE, "Error counting query: " + e.getMessage(), e);
+                throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Error executing query: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private QueryTemplate.CachePolicy getCachePolicy(String queryName) {
+        QueryTemplate template = templates.get(queryName);
+        return template == null ? null : template.getCachePolicy();
+    }
+
+    private Map<String, Object> loadReportPage(String queryName, Map<String, Object> parameters, int first, String after) {
+        QueryTemplate template = templates.get(queryName);
+        if (template == null || template.getKeyset() == null) {
+            throw new GraphQlApplicationException("CURSOR_NOT_SUPPORTED", "Cursor pagination is not supported for query: " + queryName);
+        }
+        if (!ObjectUtils.isEmpty(parameters.get("sort"))) {
+            throw new GraphQlApplicationException("CURSOR_NOT_SUPPORTED", "Cursor pagination cannot be combined with sort");
+        }
+        if (after != null) {
+            parameters.put(KEYSET_AFTER_PARAM, ReportCursor.decode(after));
+        }
+        // Fetch one extra row to learn whether another page exists
+        parameters.put("limit", first + 1);
+        parameters.remove("offset");
+
+        String keyColumn = template.getKeyset().column();
+        List<Map<String, Object>> rows = execute(queryName, parameters, template.getKeyset());
+        boolean hasNextPage = rows.size() > first;
+        if (hasNextPage) {
+            // A key may have several rows and the limit may have cut through the last one. The next page seeks
+            // past the cursor key, so the page ends with the last key whose rows are all there.
+            Object lastKey = rows.get(rows.size() - 1).get(keyColumn);
+            int end = rows.size() - 1;
+            while (end > 0 && Objects.equals(rows.get(end - 1).get(keyColumn), lastKey)) {
+                end--;
+            }
+            if (end > 0) {
+                rows = rows.subList(0, end);
+            } else {
+                // A single key with more rows than the page is returned whole
+                rows = rowsOfKey(queryName, template, parameters, lastKey);
+                hasNextPage = hasRowsAfter(queryName, template, parameters, lastKey);
             }
+        }
+        Map<String, Object> pageInfo = new HashMap<>();
+        pageInfo.put("pageSize", first);
+        pageInfo.put("hasNextPage", hasNextPage);
+        pageInfo.put("endCursor", rows.isEmpty() ? null : ReportCursor.encode(rows.get(rows.size() - 1).get(keyColumn)));
+        Map<String, Object> page = new HashMap<>();
+        page.put("rows", rows);
+        page.put("pageInfo", pageInfo);
+        return page;
+    }
 
-            // Handle dynamic replacements (e.g., {{label}})
-            for (Map.Entry<String, Object> entry : parameters.entrySet()) {
-                String key = entry.getKey();
-                Object value = entry.getValue();
-                if (value instanceof String) {
-                    String placeholder = "{{" + key + "}}";
-                    if (cypher.contains(placeholder)) {
-                        String safeValue = ((String) value).replaceAll("[^a-zA-Z0-9_]", "");
-                        cypher = cypher.replace(placeholder, safeValue);
-                    }
-                }
+    private List<Map<String, Object>> rowsOfKey(String queryName, QueryTemplate template, Map<String, Object> parameters, Object key) {
+        Map<String, Object> keyParameters = new HashMap<>(parameters);
+        keyParameters.remove(KEYSET_AFTER_PARAM);
+        keyParameters.put(KEYSET_IN_PARAM, List.of(key));
+        keyParameters.put("limit", Integer.MAX_VALUE);
+        return execute(queryName, keyParameters, template.getKeyset());
+    }
+
+    private boolean hasRowsAfter(String queryName, QueryTemplate template, Map<String, Object> parameters, Object key) {
+        Map<String, Object> probeParameters = new HashMap<>(parameters);
+        probeParameters.put(KEYSET_AFTER_PARAM, key);
+        probeParameters.put("limit", 1);
+        return !execute(queryName, probeParameters, template.getKeyset()).isEmpty();
+    }
+
+    /**
+     * Renders and runs a query. While coalescing is enabled, a call whose cypher and parameters equal those of
+     * an execution still in flight waits for that execution and shares its rows instead of running again.
+     *
+     * @return the rows, unmodifiable since they may be shared
+     */
+    private List<Map<String, Object>> execute(String queryName, Map<String, Object> parameters, QueryTemplate.Keyset keyset) {
+        QueryTemplate template = templates.get(queryName);
+        if (template == null) {
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Unknown query: " + queryName);
+        }
+        if (keyset == null) {
+            List<Map<String, Object>> rows = rankThenProject(queryName, template, parameters);
+            if (rows != null) {
+                return rows;
             }
-            parameters.putIfAbsent("offset", 0);
-            parameters.putIfAbsent("limit", 1000);
-            cypher = cypher.replace("{{SKIP_LIMIT}}", " SKIP $offset LIMIT $limit");
-            String orderBy = handleOrderBy(parameters, fieldMappings);
-            cypher = cypher + orderBy;
-            // Append Pagination
+        }
+        try {
+            String cypher = queryMetrics.time(queryName, QueryMetrics.Stage.BUILD, () -> renderCypher(template, parameters, keyset));
             logger.debug(Logger.EVENT_UNSPECIFIED, "Executing cypher: "+ String.format("%s  parameters %s", cypher, parameters));
-            // Execute Main Query
-            Result result = session.run(cypher, parameters);
-            rows = result.list(this::convertRecord);
-            logger.debug(Logger.EVENT_UNSPECIFIED, "Query result size: " + rows.size());
+            if (!coalesceExecutions) {
+                return run(queryName, template, cypher, parameters);
+            }
+            String key = QueryResultCache.cacheKey(cypher, parameters);
+            CompletableFuture<List<Map<String, Object>>> execution = new CompletableFuture<>();
+            CompletableFuture<List<Map<String, Object>>> inFlight = inFlightExecutions.putIfAbsent(key, execution);
+            if (inFlight != null) {
+                queryMetrics.recordCoalesced(queryName);
+                return inFlight.join();
+            }
+            try {
+                List<Map<String, Object>> rows = run(queryName, template, cypher, parameters);
+                execution.complete(rows);
+                return rows;
+            } catch (RuntimeException e) {
+                execution.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlightExecutions.remove(key, execution);
+            }
+        } catch (GraphQlApplicationException e) {
+            throw e;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof GraphQlApplicationException cause) {
+                throw cause;
+            }
+            logger.error(Logger.EVENT_FAILURE, "Error executing query: " + e.getMessage(), e);
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Error executing query: " + e.getCause().getMessage(), e.getCause());
         } catch (Exception e) {
             logger.error(Logger.EVENT_FAILURE, "Error executing query: " + e.getMessage(), e);
             throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Error executing query: " + e.getMessage(), e);
         }
-        return rows;
+    }
+
+    /**
+     * Runs an offset page sorted after its paging point in two passes, so the optional columns that are neither
+     * sorted nor filtered on are computed for the rows of the page only instead of for every row:
+     * <ol>
+     *     <li>the rows are ranked with those columns pruned and the page is cut after the final ORDER BY,</li>
+     *     <li>the keys of the page are re-read with every requested column and the rows put in the ranked order.</li>
+     * </ol>
+     * The sorted and filtered columns still have to be computed for every row in the first pass.
+     *
+     * @return the page, or {@code null} to run the query in one pass: the template has no keyset, no column
+     *         would be deferred, or a ranked row has no counterpart in the second pass because the data changed
+     */
+    private List<Map<String, Object>> rankThenProject(String queryName, QueryTemplate template, Map<String, Object> parameters) {
+        QueryTemplate.Keyset keyset = template.getKeyset();
+        if (keyset == null || !sortsAfterPagingStage(template, parameters)) {
+            return null;
+        }
+        Set<String> rankingColumns = filteredAndSortedFields(parameters);
+        rankingColumns.add(keyset.column());
+        Predicate<String> requested = neededColumns(template, parameters, new StringBuilder());
+        if (template.getOptionalColumns().stream().noneMatch(column -> !rankingColumns.contains(column) && requested.test(column))) {
+            return null;
+        }
+
+        Map<String, Object> ranking = new HashMap<>(parameters);
+        ranking.put(COLUMNS_PARAM, List.copyOf(rankingColumns));
+        List<Map<String, Object>> ranked = execute(queryName, ranking, null);
+        if (ranked.isEmpty()) {
+            return ranked;
+        }
+        Map<String, Object> projecting = new HashMap<>(parameters);
+        projecting.put(KEYSET_IN_PARAM, ranked.stream().map(row -> row.get(keyset.column())).distinct().toList());
+        projecting.put("limit", Integer.MAX_VALUE);
+        Map<Object, List<Map<String, Object>>> projectedByKey = new HashMap<>();
+        for (Map<String, Object> row : execute(queryName, projecting, keyset)) {
+            projectedByKey.computeIfAbsent(row.get(keyset.column()), key -> new ArrayList<>()).add(row);
+        }
+
+        // rows of one key are told apart by the columns both passes computed
+        Set<String> deferred = new HashSet<>(template.getOptionalColumns());
+        deferred.removeAll(rankingColumns);
+        List<Map<String, Object>> page = new ArrayList<>(ranked.size());
+        for (Map<String, Object> rankedRow : ranked) {
+            Map<String, Object> row = claimProjectedRow(projectedByKey.get(rankedRow.get(keyset.column())), rankedRow, deferred);
+            if (row == null) {
+                logger.debug(Logger.EVENT_UNSPECIFIED, "Ranked row of " + queryName + " changed before it was projected, sorting in one pass");
+                return null;
+            }
+            page.add(row);
+        }
+        return Collections.unmodifiableList(page);
+    }
+
+    private static Map<String, Object> claimProjectedRow(List<Map<String, Object>> candidates, Map<String, Object> rankedRow, Set<String> deferred) {
+        if (candidates == null) {
+            return null;
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            Map<String, Object> candidate = candidates.get(i);
+            boolean matches = rankedRow.entrySet().stream().allMatch(entry -> deferred.contains(entry.getKey())
+                    || Objects.equals(entry.getValue(), candidate.get(entry.getKey())));
+            if (matches) {
+                return candidates.remove(i);
+            }
+        }
+        return null;
+    }
+
+    private List<Map<String, Object>> run(String queryName, QueryTemplate template, String cypher, Map<String, Object> parameters) {
+        // Execute Main Query, records are converted as they are pulled so conversion is timed per record
+        long[] convertNanos = new long[1];
+        long start = System.nanoTime();
+        Function<Record, Map<String, Object>> converter = recordConverter();
+        List<Map<String, Object>> rows = readTransactions.read(queryName, template.getTimeout(), tx -> {
+            // a retried attempt converts all rows again, execution time includes the failed attempts
+            convertNanos[0] = 0;
+            Result result = tx.run(cypher, parameters);
+            return result.list(record -> {
+                long convertStart = System.nanoTime();
+                Map<String, Object> row = converter.apply(record);
+                convertNanos[0] += System.nanoTime() - convertStart;
+                return row;
+            });
+        });
+        long executeNanos = System.nanoTime() - start - convertNanos[0];
+        queryMetrics.recordStage(queryName, QueryMetrics.Stage.EXECUTE, executeNanos);
+        indexAdvisor.recordFilters(template, parameters, executeNanos);
+        queryMetrics.recordStage(queryName, QueryMetrics.Stage.CONVERT, convertNanos[0]);
+        queryMetrics.recordRows(queryName, rows.size());
+        logger.debug(Logger.EVENT_UNSPECIFIED, "Query result size: " + rows.size());
+        return Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * Streams a named query in chunks as records arrive from Neo4j instead of materialising the full
+     * result first. Records are only pulled as the subscriber requests them; the read transaction stays open
+     * until the returned flux completes, errors or is cancelled.
+     * <p>
+     * The reading runs as one {@link AsyncQueryExecutor} task per subscription, so a stream holds a query permit
+     * for as long as it holds its transaction and streams count against {@code max-concurrent-queries}.
+     *
+     * @param chunkSize number of converted rows per emitted list
+     */
+    public Flux<List<Map<String, Object>>> streamQueryResult(String queryName, Map<String, Object> parameters, int chunkSize) {
+        logger.info(Logger.EVENT_SUCCESS, "QueryService.streamQueryResult called with queryName: " + queryName + ", parameters: " + parameters);
+        QueryTemplate template = templates.get(queryName);
+        if (template == null) {
+            return Flux.error(new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Unknown query: " + queryName));
+        }
+        String cypher = queryMetrics.time(queryName, QueryMetrics.Stage.BUILD, () -> renderCypher(template, parameters));
+        logger.debug(Logger.EVENT_UNSPECIFIED, "Streaming cypher: "+ String.format("%s  parameters %s", cypher, parameters));
+        AtomicInteger rowCount = new AtomicInteger();
+        return Flux.<Map<String, Object>>create(sink -> {
+                    Semaphore demand = new Semaphore(0);
+                    sink.onRequest(requested -> demand.release((int) Math.min(requested, Integer.MAX_VALUE - demand.availablePermits())));
+                    sink.onCancel(demand::release);
+                    asyncQueryExecutor.submit(() -> {
+                        // cancelled while waiting for a permit
+                        if (!sink.isCancelled()) {
+                            forEachRecord(queryName, cypher, parameters, row -> {
+                                demand.acquireUninterruptibly();
+                                if (sink.isCancelled()) {
+                                    return false;
+                                }
+                                sink.next(row);
+                                return true;
+                            });
+                        }
+                        return null;
+                    }).whenComplete((ignored, e) -> {
+                        if (e == null) {
+                            sink.complete();
+                        } else {
+                            sink.error(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                        }
+                    });
+                })
+                .doOnNext(row -> rowCount.incrementAndGet())
+                .doOnComplete(() -> queryMetrics.recordRows(queryName, rowCount.get()))
+                .buffer(chunkSize)
+                .onErrorMap(e -> !(e instanceof GraphQlApplicationException), e -> {
+                    logger.error(Logger.EVENT_FAILURE, "Error streaming query: " + e.getMessage(), e);
+                    return new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Error executing query: " + e.getMessage(), e);
+                });
+    }
+
+    /**
+     * Splits the key space of a keyset query into ranges of roughly equal size. The boundaries are sampled
+     * from the template's first MATCH, before any filter stage, so each range still applies all filters.
+     * <p>
+     * The keys are counted, then every boundary is read with its own {@code ORDER BY key SKIP n LIMIT 1} probe,
+     * so no list of keys is built. With an index on the keyset property the probes walk the index in order and
+     * hold a single key each.
+     *
+     * @return ascending, distinct boundaries; empty if the query has no keyset or too few rows to split
+     */
+    public List<Object> partitionBoundaries(String queryName, Map<String, Object> parameters, int partitions) {
+        QueryTemplate template = templates.get(queryName);
+        if (template == null || template.getKeyset() == null || partitions < 2) {
+            return List.of();
+        }
+        Map<String, String> substitutions = dynamicSubstitutions(template, parameters);
+        String prefix = template.renderUntil(QueryTemplate.WHERE_CLAUSE_PREFIX + 1, substitutions::get);
+        if (prefix == null) {
+            return List.of();
+        }
+        String keyField = template.getKeyset().dbField();
+        String keys = prefix + " WHERE " + keyField + " IS NOT NULL";
+        String countCypher = keys + " RETURN count(*) AS total";
+        String probeCypher = keys + " WITH " + keyField + " AS key ORDER BY key SKIP $skip LIMIT 1 RETURN key";
+        try {
+            List<Object> boundaries = readTransactions.read(queryName + ".partitions", template.getTimeout(), tx -> {
+                long total = tx.run(countCypher).single().get("total").asLong();
+                List<Object> sampled = new ArrayList<>(partitions - 1);
+                for (int i = 1; i < partitions && total >= partitions; i++) {
+                    Result probe = tx.run(probeCypher, Map.<String, Object>of("skip", i * total / partitions));
+                    if (probe.hasNext()) {
+                        sampled.add(probe.next().get("key").asObject());
+                    }
+                }
+                return sampled;
+            });
+            return boundaries.stream().filter(java.util.Objects::nonNull).distinct().toList();
+        } catch (Exception e) {
+            logger.error(Logger.EVENT_FAILURE, "Error sampling partition boundaries: " + e.getMessage(), e);
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Error executing query: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the key and version of every row a materialized query can return, from the template's first MATCH
+     * like {@link #partitionBoundaries}, so no report row is computed.
+     *
+     * @return the {@link QueryTemplate.Materialization#version() version} by key
+     */
+    Map<Object, Object> keyVersions(String queryName) {
+        QueryTemplate template = templates.get(queryName);
+        String prefix = template == null || template.getMaterialization() == null ? null
+                : template.renderUntil(QueryTemplate.WHERE_CLAUSE_PREFIX + 1, placeholder -> null);
+        if (prefix == null) {
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Query cannot be materialized: " + queryName);
+        }
+        String cypher = prefix + " RETURN " + template.getKeyset().dbField() + " AS key, "
+                + template.getMaterialization().version() + " AS version";
+        try {
+            return readTransactions.read(queryName + ".versions", template.getTimeout(), tx -> {
+                Map<Object, Object> versions = new HashMap<>();
+                tx.run(cypher).forEachRemaining(record -> versions.put(record.get("key").asObject(), record.get("version").asObject()));
+                return versions;
+            });
+        } catch (Exception e) {
+            logger.error(Logger.EVENT_FAILURE, "Error reading row versions: " + e.getMessage(), e);
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Error executing query: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs a named query without a row limit and hands each converted row to the consumer as it arrives,
+     * so the full result is never held in memory. Queries with a keyset honour {@code keysetFrom} and
+     * {@code keysetTo} to restrict the scan to one partition, and {@code keysetIn} to read given keys only.
+     *
+     * @param consumer receives each row; returning {@code false} stops reading and closes the session
+     */
+    public void forEachRow(String queryName, Map<String, Object> parameters, Predicate<Map<String, Object>> consumer) {
+        QueryTemplate template = templates.get(queryName);
+        if (template == null) {
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Unknown query: " + queryName);
+        }
+        parameters.put("limit", Integer.MAX_VALUE);
+        parameters.remove("sort");
+        String cypher = queryMetrics.time(queryName, QueryMetrics.Stage.BUILD,
+                () -> renderCypher(template, parameters, template.getKeyset()));
+        logger.debug(Logger.EVENT_UNSPECIFIED, "Exporting cypher: "+ String.format("%s  parameters %s", cypher, parameters));
+        forEachRecord(queryName, cypher, parameters, consumer);
+    }
+
+    /**
+     * Runs one page of a report as {@code customFullReport} renders it, sort and paging included, and hands each
+     * converted row to the consumer as it arrives instead of collecting the page.
+     *
+     * @param keyset   whether the page is cut on the template's {@code keyset} as for {@link #getReportPage}
+     *                 rather than by {@code offset}
+     * @param consumer receives each row; returning {@code false} stops reading and closes the session
+     */
+    void forEachReportRow(String queryName, Map<String, Object> parameters, boolean keyset, Predicate<Map<String, Object>> consumer) {
+        QueryTemplate template = templates.get(queryName);
+        if (template == null) {
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Unknown query: " + queryName);
+        }
+        String cypher = queryMetrics.time(queryName, QueryMetrics.Stage.BUILD,
+                () -> renderCypher(template, parameters, keyset ? template.getKeyset() : null));
+        logger.debug(Logger.EVENT_UNSPECIFIED, "Reading cypher: "+ String.format("%s  parameters %s", cypher, parameters));
+        forEachRecord(queryName, cypher, parameters, consumer);
+    }
+
+    /**
+     * Hands rows to the consumer from within a read transaction. Failures before the first row are retried like any
+     * other read; once a row has been handed out a retry would replay it, so later failures end the read instead.
+     * The consumer paces the read, so it is bounded by the stream timeout rather than the query's own timeout.
+     */
+    private void forEachRecord(String queryName, String cypher, Map<String, Object> parameters,
+                               Predicate<Map<String, Object>> consumer) {
+        try {
+            readTransactions.readStream(queryName, tx -> {
+                Result result = tx.run(cypher, parameters);
+                if (!result.hasNext()) {
+                    return null;
+                }
+                Function<Record, Map<String, Object>> converter = recordConverter();
+                try {
+                    do {
+                        if (!consumer.test(converter.apply(result.next()))) {
+                            return null;
+                        }
+                    } while (result.hasNext());
+                } catch (GraphQlApplicationException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Error executing query: " + e.getMessage(), e);
+                }
+                return null;
+            });
+        } catch (GraphQlApplicationException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error(Logger.EVENT_FAILURE, "Error reading query: " + e.getMessage(), e);
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Error executing query: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Binds filter values into {@code parameters} and returns the cypher for the request.
+     * <p>
+     * Filter values only ever reach Neo4j as parameters, so the rendered text depends solely on the
+     * request "shape": the WHERE conditions per stage, the ORDER BY and any dynamic {@code {{label}}}
+     * substitutions. That shape is the cache key, so repeated report calls skip rendering entirely.
+     */
+    String renderCypher(QueryTemplate template, Map<String, Object> parameters) {
+        return renderCypher(template, parameters, null);
+    }
+
+    /**
+     * @param keyset when set, the query is paged by seeking past {@code $keysetAfter} and ordering by
+     *               the keyset rather than by SKIP and the requested sort
+     */
+    String renderCypher(QueryTemplate template, Map<String, Object> parameters, QueryTemplate.Keyset keyset) {
+        StringBuilder shape = new StringBuilder(template.getName());
+        String[] whereClauses = buildWhereClauses(template, parameters, shape);
+        if (keyset != null) {
+            whereClauses[0] = appendKeysetRange(whereClauses[0], keyset, parameters, shape);
+        }
+
+        // Handle dynamic replacements (e.g., {{label}})
+        Map<String, String> substitutions = dynamicSubstitutions(template, parameters);
+        substitutions.forEach((placeholder, value) -> shape.append('|').append(placeholder).append('=').append(value));
+        Predicate<String> neededColumns = neededColumns(template, parameters, shape);
+
+        String skipLimit;
+        String orderBy;
+        parameters.putIfAbsent("limit", 1000);
+        if (keyset != null) {
+            skipLimit = " ORDER BY " + keyset.dbField() + " LIMIT $limit";
+            orderBy = " ORDER BY " + keyset.column() + " LIMIT $limit";
+        } else {
+            parameters.putIfAbsent("offset", 0);
+            SortPlan plan = planSort(template, parameters);
+            skipLimit = plan.skipLimit();
+            orderBy = plan.orderBy();
+        }
+        shape.append('|').append(skipLimit).append('|').append(orderBy);
+
+        return renderedCypherCache.get(shape.toString(), key -> template.render(placeholder -> {
+            if (QueryTemplate.SKIP_LIMIT.equals(placeholder)) {
+                return skipLimit;
+            }
+            return resolvePlaceholder(placeholder, whereClauses, substitutions);
+        }, neededColumns) + orderBy);
+    }
+
+    /**
+     * Decides where an offset-paged query is sorted. {@link #handleOrderBy} alone sorts after the template has
+     * been cut at {@code {{SKIP_LIMIT}}}, i.e. only within the page.
+     * <ul>
+     *     <li>When every sort field is mapped at or before the {@link QueryTemplate#getPagingStage() paging stage},
+     *     the ORDER BY is placed in front of SKIP, with the keyset as tie-breaker so pages do not overlap. It is
+     *     repeated at the end because the stages after the paging point do not keep row order.</li>
+     *     <li>Otherwise the page is cut after the final ORDER BY. Neo4j keeps only {@code offset + limit} rows in
+     *     its top-k sort, but every row matched before the paging point runs through all later stages first,
+     *     including expensive per-row projections such as path walks. The window is bounded by
+     *     {@code app.query.max-sort-window}, and {@link #rankThenProject} defers the optional columns that are
+     *     not sorted on to a second pass over the page where it can.</li>
+     * </ul>
+     * Templates without a paging point and requests without a sort keep the ORDER BY at the end.
+     */
+    @SuppressWarnings("unchecked")
+    private SortPlan planSort(QueryTemplate template, Map<String, Object> parameters) {
+        String orderBy = handleOrderBy(parameters, template.getFieldMappings());
+        if (orderBy.isEmpty() || !template.getPlaceholderNames().contains(QueryTemplate.SKIP_LIMIT)) {
+            return new SortPlan(SKIP_LIMIT_CLAUSE, orderBy);
+        }
+        if (sortsAfterPagingStage(template, parameters)) {
+            checkSortWindow(template, parameters);
+            return new SortPlan("", orderBy + SKIP_LIMIT_CLAUSE);
+        }
+        List<String> pushedOrderBys = new ArrayList<>();
+        for (Map<String, Object> sort : (List<Map<String, Object>>) parameters.get("sort")) {
+            String field = (String) sort.get("field");
+            int stage = template.getStage(field);
+            String dbField = stage == 0 ? null : getDbField(template.getStageMapping(stage).get(field));
+            if (dbField == null) {
+                continue;
+            }
+            String direction = (String) sort.get("direction");
+            pushedOrderBys.add(dbField + " " + (direction != null ? direction : "ASC"));
+        }
+        QueryTemplate.Keyset keyset = template.getKeyset();
+        if (keyset != null && pushedOrderBys.stream().noneMatch(order -> order.startsWith(keyset.dbField() + " "))) {
+            pushedOrderBys.add(keyset.dbField());
+            orderBy = orderBy + ", " + keyset.column();
+        }
+        return new SortPlan(" ORDER BY " + String.join(", ", pushedOrderBys) + SKIP_LIMIT_CLAUSE, orderBy);
+    }
+
+    /**
+     * @return whether the request sorts on a mapped field of a stage after the paging point of the template
+     */
+    private static boolean sortsAfterPagingStage(QueryTemplate template, Map<String, Object> parameters) {
+        if (!(parameters.get("sort") instanceof List<?> sorts) || !template.getPlaceholderNames().contains(QueryTemplate.SKIP_LIMIT)) {
+            return false;
+        }
+        for (Object entry : sorts) {
+            if (entry instanceof Map<?, ?> sort && sort.get("field") instanceof String field) {
+                int stage = template.getStage(field);
+                if (stage > template.getPagingStage() && getDbField(template.getStageMapping(stage).get(field)) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void checkSortWindow(QueryTemplate template, Map<String, Object> parameters) {
+        long window = ((Number) parameters.get("offset")).longValue() + ((Number) parameters.get("limit")).longValue();
+        if (window > maxSortWindow) {
+            throw new GraphQlApplicationException("SORT_WINDOW_EXCEEDED", "Sorting " + template.getName()
+                    + " after its paging point is limited to offset + limit <= " + maxSortWindow + ", requested " + window);
+        }
+    }
+
+    /**
+     * Renders the count variant of a report: the template up to its {@code {{SKIP_LIMIT}}}, i.e. the rows
+     * that offset and cursor paging page over, followed by a count. Everything after the paging point,
+     * typically the expensive per-row projection, is left out.
+     *
+     * @return the count cypher, or {@code null} if the template has no paging point or a filter applies after it,
+     *         which the count would leave out
+     */
+    String renderCountCypher(QueryTemplate template, Map<String, Object> parameters) {
+        StringBuilder shape = new StringBuilder("count:").append(template.getName());
+        String[] whereClauses = buildWhereClauses(template, parameters, shape);
+        for (int stage = template.getPagingStage() + 1; stage <= QueryTemplate.MAX_STAGES; stage++) {
+            if (!whereClauses[stage - 1].isEmpty()) {
+                return null;
+            }
+        }
+        Map<String, String> substitutions = dynamicSubstitutions(template, parameters);
+        substitutions.forEach((placeholder, value) -> shape.append('|').append(placeholder).append('=').append(value));
+        Predicate<String> neededColumns = neededColumns(template, parameters, shape);
+        if (!template.getPlaceholderNames().contains(QueryTemplate.SKIP_LIMIT)) {
+            return null;
+        }
+        return renderedCypherCache.get(shape.toString(), key -> template.renderUntil(QueryTemplate.SKIP_LIMIT,
+                placeholder -> resolvePlaceholder(placeholder, whereClauses, substitutions), neededColumns)
+                + " RETURN count(*) AS totalCount");
+    }
+
+    /**
+     * Builds the WHERE clause of every stage, numbering parameters across stages, and appends them to the shape.
+     */
+    private String[] buildWhereClauses(QueryTemplate template, Map<String, Object> parameters, StringBuilder shape) {
+        AtomicInteger paramCounter = new AtomicInteger();
+        String[] whereClauses = new String[QueryTemplate.MAX_STAGES];
+        for (int stage = 1; stage <= QueryTemplate.MAX_STAGES; stage++) {
+            Map<String, Object> fieldMapping = template.getStageMapping(stage);
+            // Build WHERE clause from filters, unused placeholders become empty strings
+            whereClauses[stage - 1] = fieldMapping.isEmpty() ? "" : buildWhereClause(parameters, fieldMapping, paramCounter, template);
+            shape.append('|').append(whereClauses[stage - 1]);
+        }
+        return whereClauses;
+    }
+
+    /**
+     * Decides which optional columns of the template are computed. All of them are unless the request lists
+     * its {@code columns}; a column that is filtered or sorted on is kept even when it is not requested.
+     * Pruned columns are appended to the shape.
+     */
+    private static Predicate<String> neededColumns(QueryTemplate template, Map<String, Object> parameters, StringBuilder shape) {
+        if (template.getOptionalColumns().isEmpty() || !(parameters.get(COLUMNS_PARAM) instanceof List<?> columns) || columns.isEmpty()) {
+            return column -> true;
+        }
+        Set<String> needed = filteredAndSortedFields(parameters);
+        for (Object column : columns) {
+            needed.add(String.valueOf(column));
+        }
+        for (String column : template.getOptionalColumns()) {
+            if (!needed.contains(column)) {
+                shape.append("|pruned:").append(column);
+            }
+        }
+        return needed::contains;
+    }
+
+    private static Set<String> filteredAndSortedFields(Map<String, Object> parameters) {
+        Set<String> fields = new HashSet<>();
+        for (String key : List.of("filters", "sort")) {
+            if (parameters.get(key) instanceof List<?> entries) {
+                for (Object entry : entries) {
+                    if (entry instanceof Map<?, ?> map && map.get("field") != null) {
+                        fields.add(String.valueOf(map.get("field")));
+                    }
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static String resolvePlaceholder(String placeholder, String[] whereClauses, Map<String, String> substitutions) {
+        if (placeholder.startsWith(QueryTemplate.WHERE_CLAUSE_PREFIX)) {
+            int stage = parseStage(placeholder);
+            return stage > 0 ? whereClauses[stage - 1] : null;
+        }
+        return substitutions.get(placeholder);
+    }
+
+    /**
+     * Adds the keyset predicates present in the parameters to the first stage: {@code keysetAfter} seeks
+     * past a cursor, {@code keysetFrom} (inclusive) and {@code keysetTo} (exclusive) bound an export partition,
+     * {@code keysetIn} restricts a snapshot refresh to the changed keys.
+     */
+    private static String appendKeysetRange(String whereClause, QueryTemplate.Keyset keyset, Map<String, Object> parameters,
+                                            StringBuilder shape) {
+        List<String> predicates = new ArrayList<>(2);
+        if (parameters.containsKey(KEYSET_AFTER_PARAM)) {
+            predicates.add(keyset.dbField() + " > $" + KEYSET_AFTER_PARAM);
+        }
+        if (parameters.containsKey(KEYSET_FROM_PARAM)) {
+            predicates.add(keyset.dbField() + " >= $" + KEYSET_FROM_PARAM);
+        }
+        if (parameters.containsKey(KEYSET_TO_PARAM)) {
+            predicates.add(keyset.dbField() + " < $" + KEYSET_TO_PARAM);
+        }
+        if (parameters.containsKey(KEYSET_IN_PARAM)) {
+            predicates.add(keyset.dbField() + " IN $" + KEYSET_IN_PARAM);
+        }
+        if (predicates.isEmpty()) {
+            return whereClause;
+        }
+        String range = String.join(" AND ", predicates);
+        shape.append("|seek:").append(range);
+        return whereClause.isEmpty() ? " WHERE " + range : whereClause + " AND " + range;
+    }
+
+    private static Map<String, String> dynamicSubstitutions(QueryTemplate template, Map<String, Object> parameters) {
+        Map<String, String> substitutions = new HashMap<>();
+        for (String placeholder : template.getPlaceholderNames()) {
+            Object value = parameters.get(placeholder);
+            if (value instanceof String && !isReservedPlaceholder(placeholder)) {
+                substitutions.put(placeholder, ((String) value).replaceAll("[^a-zA-Z0-9_]", ""));
+            }
+        }
+        return substitutions;
+    }
+
+    private static boolean isReservedPlaceholder(String placeholder) {
+        return QueryTemplate.SKIP_LIMIT.equals(placeholder)
+                || (placeholder.startsWith(QueryTemplate.WHERE_CLAUSE_PREFIX) && parseStage(placeholder) > 0);
+    }
+
+    private static int parseStage(String placeholder) {
+        try {
+            int stage = Integer.parseInt(placeholder.substring(QueryTemplate.WHERE_CLAUSE_PREFIX.length()));
+            return stage >= 1 && stage <= QueryTemplate.MAX_STAGES ? stage : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     static String handleOrderBy(Map<String, Object> parameters, Map<String, Object> fieldMapping) {
@@ -124,9 +878,26 @@ public class QueryService {
     }
 
     String buildWhereClause(Map<String, Object> parameters, Map<String, Object> fieldMapping) {
+        return buildWhereClause(parameters, fieldMapping, new AtomicInteger());
+    }
+
+    /**
+     * @param paramCounter shared across all stages of one query so that filters bound at different
+     *                     stages never reuse the same {@code $filterParamN} name
+     */
+    String buildWhereClause(Map<String, Object> parameters, Map<String, Object> fieldMapping, AtomicInteger paramCounter) {
+        return buildWhereClause(parameters, fieldMapping, paramCounter, null);
+    }
+
+    /**
+     * @param template when set, predicates an online index can serve are placed first so they anchor the match
+     *                 and residual filters only run on the rows the index returns
+     */
+    String buildWhereClause(Map<String, Object> parameters, Map<String, Object> fieldMapping, AtomicInteger paramCounter,
+                            QueryTemplate template) {
         List<Map<String, Object>> filters = (List<Map<String, Object>>) parameters.get("filters");
         List<String> conditions = new ArrayList<>();
-        int paramCounter = 0;
+        int indexedConditions = 0;
         if (!ObjectUtils.isEmpty(filters)) {
             for (Map<String, Object> filter : filters) {
                 String field = (String) filter.get("field");
@@ -139,8 +910,9 @@ public class QueryService {
                 
                 List<Object> values = convertValues(valuesStr, mapping);
 
-                String paramName = "filterParam" + paramCounter++;
+                String paramName = "filterParam" + paramCounter.getAndIncrement();
                 parameters.put(paramName, values);
+                int conditionCount = conditions.size();
 
                 switch (op) {
                     case "EQ":
@@ -182,6 +954,9 @@ public class QueryService {
                     default:
                         break;
                 }
+                if (conditions.size() > conditionCount && template != null && indexAdvisor.isIndexed(template, dbField, op)) {
+                    conditions.add(indexedConditions++, conditions.remove(conditions.size() - 1));
+                }
             }
         }
         return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
@@ -203,7 +978,7 @@ public class QueryService {
         return "STRING";
     }
     
-    private List<Object> convertValues(List<String> values, Object mapping) {
+    List<Object> convertValues(List<String> values, Object mapping) {
         if (values == null) return new ArrayList<>();
         String type = getType(mapping);
         String enumName = (mapping instanceof Map) ? (String) ((Map<?, ?>) mapping).get("enumName") : null;
@@ -240,26 +1015,32 @@ public class QueryService {
     }
 
     Map<String, Object> convertRecord(Record record) {
-        Map<String, Object> result = new HashMap<>();
-        for (String key : record.keys()) {
-            Value value = record.get(key);
-            result.put(key, convertValue(value));
-        }
-        return result;
-    }
-
-    private Object convertValue(Value value) {
-        if (value.hasType(org.neo4j.driver.internal.types.InternalTypeSystem.TYPE_SYSTEM.NODE())) {
-            Node node = value.asNode();
-            Map<String, Object> nodeMap = new HashMap<>();
-            nodeMap.put("id", node.id());
-            nodeMap.put("labels", node.labels());
-            nodeMap.put("properties", node.asMap());
-            return nodeMap;
-        } else if (value.hasType(org.neo4j.driver.internal.types.InternalTypeSystem.TYPE_SYSTEM.RELATIONSHIP())) {
-            return value.asRelationship().asMap();
-        } else {
-            return value.asObject();
-        }
+        return projectorFor(record.keys()).project(record);
+    }
+
+    /**
+     * Returns a converter for the records of one result. The projector is resolved on the first record
+     * and reused for the rest, which share its key list.
+     */
+    Function<Record, Map<String, Object>> recordConverter() {
+        RecordProjector[] projector = new RecordProjector[1];
+        return record -> {
+            List<String> keys = record.keys();
+            if (projector[0] == null || !projector[0].matches(keys)) {
+                projector[0] = projectorFor(keys);
+            }
+            return projector[0].project(record);
+        };
+    }
+
+    private RecordProjector projectorFor(List<String> keys) {
+        return projectors.get(keys, columns -> new RecordProjector(List.copyOf(columns)));
+    }
+
+    /**
+     * @param skipLimit replaces {@code {{SKIP_LIMIT}}}
+     * @param orderBy   appended to the rendered template
+     */
+    private record SortPlan(String skipLimit, String orderBy) {
     }
 }
@@ -0,0 +1,384 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * A {@code queries.yml} entry compiled once at load time.
+ * <p>
+ * The cypher text is split into literal segments and {@code {{placeholder}}} names so that rendering
+ * is a single pass into a pre-sized builder instead of repeated {@link String#replace} calls over the
+ * whole template. The per-stage field mappings and their merged view are resolved here as well.
+ * <p>
+ * Optional sections name the column they compute: {@code {{#column}}...{{/column}}} is rendered only while
+ * the column is needed and {@code {{^column}}...{{/column}}} only when it is not, typically to return
+ * {@code null} in its place. Sections do not nest.
+ */
+final class QueryTemplate {
+
+    static final int MAX_STAGES = 4;
+    static final String WHERE_CLAUSE_PREFIX = "WHERE_CLAUSE_";
+    static final String SKIP_LIMIT = "SKIP_LIMIT";
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final char SECTION = '#';
+    private static final char INVERTED_SECTION = '^';
+    private static final char SECTION_END = '/';
+    private static final Pattern NODE_PATTERN = Pattern.compile("\\(\\s*(\\w+)\\s*:\\s*`?(\\w+)`?");
+
+    private final String name;
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int[] sectionEnds;
+    private final int literalLength;
+    private final Set<String> placeholderNames;
+    private final List<Map<String, Object>> stageMappings;
+    private final Map<String, Object> fieldMappings;
+    private final Keyset keyset;
+    private final CachePolicy cachePolicy;
+    private final Duration timeout;
+    private final Materialization materialization;
+    private final Map<String, String> nodeLabels;
+    private final Set<String> optionalColumns;
+    private final int pagingStage;
+
+    private QueryTemplate(String name, List<String> literals, List<String> placeholders,
+                          List<Map<String, Object>> stageMappings, Map<String, Object> fieldMappings, Keyset keyset,
+                          CachePolicy cachePolicy, Duration timeout, Materialization materialization,
+                          Map<String, String> nodeLabels) {
+        this.name = name;
+        this.literals = literals.toArray(new String[0]);
+        this.placeholders = placeholders.toArray(new String[0]);
+        this.sectionEnds = matchSections(name, this.placeholders);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+        Set<String> names = new LinkedHashSet<>();
+        Set<String> columns = new LinkedHashSet<>();
+        for (String placeholder : placeholders) {
+            if (isSectionMarker(placeholder)) {
+                columns.add(placeholder.substring(1));
+            } else {
+                names.add(placeholder);
+            }
+        }
+        this.placeholderNames = Collections.unmodifiableSet(names);
+        this.optionalColumns = Collections.unmodifiableSet(columns);
+        this.pagingStage = pagingStage(this.placeholders);
+        this.stageMappings = stageMappings;
+        this.fieldMappings = fieldMappings;
+        this.keyset = keyset;
+        this.cachePolicy = cachePolicy;
+        this.timeout = timeout;
+        this.materialization = materialization;
+        this.nodeLabels = nodeLabels;
+    }
+
+    @SuppressWarnings("unchecked")
+    static QueryTemplate compile(String name, Map<String, Object> definition) {
+        String cypher = (String) definition.get("cypher");
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int open = cypher.indexOf(OPEN, from);
+            int close = open < 0 ? -1 : cypher.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                break;
+            }
+            literals.add(cypher.substring(from, open));
+            placeholders.add(cypher.substring(open + OPEN.length(), close));
+            from = close + CLOSE.length();
+        }
+        literals.add(cypher.substring(from));
+
+        List<Map<String, Object>> stageMappings = new ArrayList<>(MAX_STAGES);
+        Map<String, Object> fieldMappings = new HashMap<>();
+        for (int stage = 1; stage <= MAX_STAGES; stage++) {
+            Map<String, Object> fieldMapping = (Map<String, Object>) definition.get("fieldMapping" + stage);
+            if (ObjectUtils.isEmpty(fieldMapping)) {
+                stageMappings.add(Collections.emptyMap());
+            } else {
+                stageMappings.add(Collections.unmodifiableMap(fieldMapping));
+                fieldMappings.putAll(fieldMapping);
+            }
+        }
+        Map<String, Object> keysetDefinition = (Map<String, Object>) definition.get("keyset");
+        Keyset keyset = ObjectUtils.isEmpty(keysetDefinition) ? null
+                : new Keyset((String) keysetDefinition.get("dbField"), (String) keysetDefinition.get("column"));
+        Map<String, Object> cacheDefinition = (Map<String, Object>) definition.get("cache");
+        CachePolicy cachePolicy = ObjectUtils.isEmpty(cacheDefinition) ? null
+                : new CachePolicy(parseDuration(cacheDefinition.get("ttl")), parseDuration(cacheDefinition.get("staleWhileRevalidate")));
+        Duration timeout = definition.get("timeout") == null ? null : parseDuration(definition.get("timeout"));
+        Map<String, Object> materializeDefinition = (Map<String, Object>) definition.get("materialize");
+        Materialization materialization = null;
+        if (!ObjectUtils.isEmpty(materializeDefinition)) {
+            if (keyset == null || materializeDefinition.get("version") == null) {
+                throw new IllegalArgumentException("Materialized query " + name + " needs a keyset and a version");
+            }
+            materialization = new Materialization((String) materializeDefinition.get("version"),
+                    parseDuration(materializeDefinition.getOrDefault("refresh", "1m")),
+                    parseDuration(materializeDefinition.getOrDefault("rebuild", "6h")));
+        }
+        Map<String, String> nodeLabels = new HashMap<>();
+        Matcher node = NODE_PATTERN.matcher(cypher);
+        while (node.find()) {
+            nodeLabels.putIfAbsent(node.group(1), node.group(2));
+        }
+        return new QueryTemplate(name, literals, placeholders,
+                Collections.unmodifiableList(stageMappings), Collections.unmodifiableMap(fieldMappings), keyset, cachePolicy,
+                timeout, materialization, Collections.unmodifiableMap(nodeLabels));
+    }
+
+    /**
+     * @return for each opening section marker the index of its closing marker, {@code -1} for other placeholders
+     */
+    private static int[] matchSections(String name, String[] placeholders) {
+        int[] sectionEnds = new int[placeholders.length];
+        int open = -1;
+        for (int i = 0; i < placeholders.length; i++) {
+            sectionEnds[i] = -1;
+            if (!isSectionMarker(placeholders[i])) {
+                continue;
+            }
+            if (placeholders[i].charAt(0) != SECTION_END) {
+                if (open >= 0) {
+                    throw new IllegalArgumentException("Nested section {{" + placeholders[i] + "}} in query " + name);
+                }
+                open = i;
+            } else if (open < 0 || !placeholders[open].substring(1).equals(placeholders[i].substring(1))) {
+                throw new IllegalArgumentException("Unmatched section end {{" + placeholders[i] + "}} in query " + name);
+            } else {
+                sectionEnds[open] = i;
+                open = -1;
+            }
+        }
+        if (open >= 0) {
+            throw new IllegalArgumentException("Unclosed section {{" + placeholders[open] + "}} in query " + name);
+        }
+        return sectionEnds;
+    }
+
+    /**
+     * @return the highest stage whose WHERE_CLAUSE precedes the first {@code {{SKIP_LIMIT}}}, {@code 0} if there is none
+     */
+    private static int pagingStage(String[] placeholders) {
+        int stage = 0;
+        for (String placeholder : placeholders) {
+            if (SKIP_LIMIT.equals(placeholder)) {
+                return stage;
+            }
+            if (placeholder.startsWith(WHERE_CLAUSE_PREFIX)) {
+                try {
+                    stage = Math.max(stage, Integer.parseInt(placeholder.substring(WHERE_CLAUSE_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    // not a stage placeholder
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isSectionMarker(String placeholder) {
+        char first = placeholder.isEmpty() ? 0 : placeholder.charAt(0);
+        return first == SECTION || first == INVERTED_SECTION || first == SECTION_END;
+    }
+
+    private static Duration parseDuration(Object value) {
+        return value == null ? Duration.ZERO : DurationStyle.detectAndParse(String.valueOf(value));
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Set<String> getPlaceholderNames() {
+        return placeholderNames;
+    }
+
+    /**
+     * @param stage 1-based stage number matching {@code fieldMappingN} / {@code {{WHERE_CLAUSE_N}}}
+     * @return the field mapping for the stage, or an empty map when the stage has none
+     */
+    Map<String, Object> getStageMapping(int stage) {
+        return stageMappings.get(stage - 1);
+    }
+
+    /**
+     * @return the first stage whose field mapping declares the field, {@code 0} if none does
+     */
+    int getStage(String field) {
+        for (int stage = 1; stage <= MAX_STAGES; stage++) {
+            if (stageMappings.get(stage - 1).containsKey(field)) {
+                return stage;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Fields of this stage and earlier ones are bound where {@code {{SKIP_LIMIT}}} cuts the page, so rows can
+     * be ordered by them before paging.
+     *
+     * @return the last stage rendered before {@code {{SKIP_LIMIT}}}, {@code 0} if the template has no paging point
+     */
+    int getPagingStage() {
+        return pagingStage;
+    }
+
+    /**
+     * @return all stage field mappings merged, later stages overriding earlier ones
+     */
+    Map<String, Object> getFieldMappings() {
+        return fieldMappings;
+    }
+
+    /**
+     * @return the stable ordering key used for cursor pagination, or {@code null} if the query has none
+     */
+    Keyset getKeyset() {
+        return keyset;
+    }
+
+    /**
+     * @return how long results of this query may be served from the result cache, or {@code null} if they are not cached
+     */
+    CachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * @return the transaction timeout of this query, or {@code null} to use {@code app.neo4j.read.timeout}
+     */
+    Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return how the query is held in memory by {@link ReportSnapshotStore}, or {@code null} if it always runs on Neo4j
+     */
+    Materialization getMaterialization() {
+        return materialization;
+    }
+
+    /**
+     * @param variable a node variable of the cypher, e.g. {@code obj}
+     * @return the label the variable is first matched with, e.g. {@code Antenna}, or {@code null} if it is never labelled
+     */
+    String getNodeLabel(String variable) {
+        return nodeLabels.get(variable);
+    }
+
+    /**
+     * @return the columns computed by optional sections
+     */
+    Set<String> getOptionalColumns() {
+        return optionalColumns;
+    }
+
+    /**
+     * Renders the template in one pass with every optional column included.
+     *
+     * @param resolver returns the text for a placeholder name, or {@code null} to leave the placeholder untouched
+     * @return the rendered cypher
+     */
+    String render(Function<String, String> resolver) {
+        return render(resolver, column -> true);
+    }
+
+    /**
+     * @param neededColumns decides which optional sections are rendered
+     */
+    String render(Function<String, String> resolver, Predicate<String> neededColumns) {
+        return render(resolver, neededColumns, null);
+    }
+
+    /**
+     * Renders the template up to, excluding, the first occurrence of a placeholder.
+     *
+     * @param placeholder where to stop
+     * @param resolver    as for {@link #render(Function)}
+     * @return the rendered prefix, or {@code null} if the template has no such placeholder
+     */
+    String renderUntil(String placeholder, Function<String, String> resolver) {
+        return renderUntil(placeholder, resolver, column -> true);
+    }
+
+    String renderUntil(String placeholder, Function<String, String> resolver, Predicate<String> neededColumns) {
+        return placeholderNames.contains(placeholder) ? render(resolver, neededColumns, placeholder) : null;
+    }
+
+    private String render(Function<String, String> resolver, Predicate<String> neededColumns, String stopAt) {
+        StringBuilder cypher = new StringBuilder(literalLength + 64 * placeholders.length);
+        for (int i = 0; i < placeholders.length; i++) {
+            cypher.append(literals[i]);
+            String placeholder = placeholders[i];
+            if (placeholder.equals(stopAt)) {
+                return cypher.toString();
+            }
+            if (sectionEnds[i] >= 0) {
+                boolean needed = neededColumns.test(placeholder.substring(1));
+                if (needed != (placeholder.charAt(0) == SECTION)) {
+                    // continue with the literal following the section end
+                    i = sectionEnds[i];
+                }
+                continue;
+            }
+            if (isSectionMarker(placeholder)) {
+                continue;
+            }
+            String value = resolver.apply(placeholder);
+            if (value != null) {
+                cypher.append(value);
+            } else {
+                cypher.append(OPEN).append(placeholder).append(CLOSE);
+            }
+        }
+        if (stopAt != null) {
+            return null;
+        }
+        cypher.append(literals[placeholders.length]);
+        return cypher.toString();
+    }
+
+    /**
+     * Unique, stable ordering key declared under {@code keyset} in {@code queries.yml}.
+     *
+     * @param dbField expression valid at the first WHERE_CLAUSE stage, used for the seek predicate
+     * @param column  returned column holding the same value, used for the final ordering and cursors
+     */
+    record Keyset(String dbField, String column) {
+    }
+
+    /**
+     * Result caching declared under {@code cache} in {@code queries.yml}.
+     *
+     * @param ttl                  how long a cached result is served as fresh
+     * @param staleWhileRevalidate how much longer it may be served while a background refresh runs
+     */
+    record CachePolicy(Duration ttl, Duration staleWhileRevalidate) {
+    }
+
+    /**
+     * In-memory snapshot declared under {@code materialize} in {@code queries.yml}.
+     *
+     * @param version expression valid at the first WHERE_CLAUSE stage that changes whenever a row's node does,
+     *                e.g. {@code obj._version}
+     * @param refresh how often rows of changed, added and removed keys are brought up to date
+     * @param rebuild how often the whole report is reloaded, which also picks up changes of related nodes
+     */
+    record Materialization(String version, Duration refresh, Duration rebuild) {
+    }
+}
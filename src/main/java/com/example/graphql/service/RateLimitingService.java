@@ -6,16 +6,30 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+import jakarta.annotation.PostConstruct;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
-public class RateLimitingService {
+public class RateLimitingService implements MeterBinder {
 
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    /**
+     * Buckets per client key, expiring after inactivity since an idle bucket has refilled completely anyway.
+     * The store is not size-bounded: evicting a drained bucket would hand its client a full one. Once
+     * {@code max-clients} buckets are held, new clients share a single overflow bucket instead.
+     */
+    private final Cache<String, Bucket> buckets;
+    private final long maxClients;
+    private final Duration idleExpiry;
+    private volatile Bucket overflowBucket;
 
     @Value("${app.rate-limit.capacity}")
     private long capacity;
@@ -23,9 +37,67 @@ public class RateLimitingService {
     @Value("${app.rate-limit.duration}")
     private Duration duration;
 
+    public RateLimitingService(@Value("${app.rate-limit.max-clients:100000}") long maxClients,
+                               @Value("${app.rate-limit.idle-expiry:10m}") Duration idleExpiry) {
+        this.maxClients = maxClients;
+        this.idleExpiry = idleExpiry;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idleExpiry)
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    void checkIdleExpiry() {
+        if (idleExpiry.compareTo(duration) < 0) {
+            throw new IllegalStateException("app.rate-limit.idle-expiry must not be shorter than app.rate-limit.duration,"
+                    + " buckets would expire before they have refilled");
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, buckets, "rateLimitBuckets");
+    }
+
     public Bucket resolveBucket(String ip) {
         log.debug("Resolving bucket for IP: {}", ip);
-        return buckets.computeIfAbsent(ip, this::newBucket);
+        Bucket bucket = buckets.getIfPresent(ip);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.estimatedSize() >= maxClients) {
+            log.debug("Tracking {} rate limit clients, charging {} to the shared overflow bucket", maxClients, ip);
+            return overflowBucket();
+        }
+        return buckets.get(ip, this::newBucket);
+    }
+
+    /**
+     * @return the most tokens a single bucket can hold
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of client buckets currently held
+     */
+    public long getTrackedClients() {
+        return buckets.estimatedSize();
+    }
+
+    private Bucket overflowBucket() {
+        Bucket bucket = overflowBucket;
+        if (bucket == null) {
+            synchronized (this) {
+                if (overflowBucket == null) {
+                    overflowBucket = newBucket("overflow");
+                }
+                bucket = overflowBucket;
+            }
+        }
+        return bucket;
     }
 
     private Bucket newBucket(String ip) {
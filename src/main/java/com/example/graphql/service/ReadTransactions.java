@@ -0,0 +1,80 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.TransactionCallback;
+import org.neo4j.driver.TransactionConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.telstra.tni.commonutils.neo4j.DatabaseDriver;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs reads as managed transactions, so that a routing driver ({@code neo4j://} URI) spreads them over the
+ * followers and read replicas of a cluster and retries them on transient failures and leader switches.
+ * <p>
+ * Every transaction carries a timeout, the query's own or {@code app.neo4j.read.timeout}, and metadata naming
+ * the application and query so it can be found in {@code SHOW TRANSACTIONS} and the query log. Reads whose rows
+ * are pulled at the client's pace, such as streams and exports, use {@code app.neo4j.read.stream-timeout}
+ * instead, as the transaction stays open until the client has consumed the last row. Setting
+ * {@code app.neo4j.read.access-mode} to {@code WRITE} pins all reads to the leader instead.
+ * <p>
+ * The work may run more than once and must not have side effects outside the transaction before it completes.
+ */
+@Component
+@Slf4j
+public class ReadTransactions {
+
+    private final DatabaseDriver databaseDriver;
+    private final AccessMode accessMode;
+    private final Duration defaultTimeout;
+    private final Duration streamTimeout;
+    private final String application;
+
+    public ReadTransactions(DatabaseDriver databaseDriver,
+                            @Value("${app.neo4j.read.access-mode:READ}") AccessMode accessMode,
+                            @Value("${app.neo4j.read.timeout:60s}") Duration defaultTimeout,
+                            @Value("${app.neo4j.read.stream-timeout:30m}") Duration streamTimeout,
+                            @Value("${spring.application.name:graphql}") String application) {
+        this.databaseDriver = databaseDriver;
+        this.accessMode = accessMode;
+        this.defaultTimeout = defaultTimeout;
+        this.streamTimeout = streamTimeout;
+        this.application = application;
+    }
+
+    /**
+     * @param query   name reported in the transaction metadata, e.g. the {@code queries.yml} entry
+     * @param timeout transaction timeout, or {@code null} for {@code app.neo4j.read.timeout}
+     * @return the result of the work's last, successful attempt
+     */
+    public <T> T read(String query, Duration timeout, TransactionCallback<T> work) {
+        return run(query, timeout == null ? defaultTimeout : timeout, work);
+    }
+
+    /**
+     * Runs a read whose rows are handed out while the transaction is open, at the pace of the client consuming
+     * them. Its timeout is {@code app.neo4j.read.stream-timeout}, which bounds the whole stream or export.
+     *
+     * @param query name reported in the transaction metadata, e.g. the {@code queries.yml} entry
+     * @return the result of the work's last, successful attempt
+     */
+    public <T> T readStream(String query, TransactionCallback<T> work) {
+        return run(query, streamTimeout, work);
+    }
+
+    private <T> T run(String query, Duration timeout, TransactionCallback<T> work) {
+        TransactionConfig config = TransactionConfig.builder()
+                .withTimeout(timeout)
+                .withMetadata(Map.of("app", application, "query", query))
+                .build();
+        try (Session session = databaseDriver.sessionFor()) {
+            return accessMode == AccessMode.WRITE ? session.executeWrite(work, config) : session.executeRead(work, config);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.graphql.service;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.internal.types.InternalTypeSystem;
+import org.neo4j.driver.types.Node;
+import org.neo4j.driver.types.Type;
+import org.neo4j.driver.types.TypeSystem;
+
+/**
+ * Converts driver records of one column layout into response rows.
+ * <p>
+ * A projector is built once per column list. Each row is a fixed-layout {@link Map} holding only a
+ * value array, while the column names and their index are shared by every row of the layout.
+ * Values are read by position and strings, numbers and booleans are unwrapped directly, so that
+ * only nodes and relationships take the generic conversion path.
+ */
+final class RecordProjector {
+
+    private static final TypeSystem TYPES = InternalTypeSystem.TYPE_SYSTEM;
+    private static final Type STRING = TYPES.STRING();
+    private static final Type INTEGER = TYPES.INTEGER();
+    private static final Type FLOAT = TYPES.FLOAT();
+    private static final Type BOOLEAN = TYPES.BOOLEAN();
+    private static final Type NULL = TYPES.NULL();
+    private static final Type NODE = TYPES.NODE();
+    private static final Type RELATIONSHIP = TYPES.RELATIONSHIP();
+
+    private final List<String> keys;
+    private final Layout layout;
+
+    RecordProjector(List<String> keys) {
+        this.keys = keys;
+        this.layout = new Layout(keys);
+    }
+
+    /**
+     * @return whether records with the given keys have this projector's layout
+     */
+    boolean matches(List<String> recordKeys) {
+        // records of one result share the key list, so the identity check is the common case
+        return recordKeys == keys || recordKeys.equals(keys);
+    }
+
+    Map<String, Object> project(Record record) {
+        Object[] values = new Object[layout.columns.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = convertValue(record.get(i));
+        }
+        return new Row(layout, values);
+    }
+
+    static Object convertValue(Value value) {
+        Type type = value.type();
+        if (type == STRING) {
+            return value.asString();
+        } else if (type == INTEGER) {
+            return value.asLong();
+        } else if (type == FLOAT) {
+            return value.asDouble();
+        } else if (type == BOOLEAN) {
+            return value.asBoolean();
+        } else if (type == NULL) {
+            return null;
+        } else if (type == NODE) {
+            Node node = value.asNode();
+            return Map.of("id", node.id(), "labels", node.labels(), "properties", node.asMap());
+        } else if (type == RELATIONSHIP) {
+            return value.asRelationship().asMap();
+        }
+        return value.asObject();
+    }
+
+    /**
+     * Column names and their positions, shared by all rows of one layout.
+     */
+    private static final class Layout implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final String[] columns;
+        private final Map<String, Integer> index;
+
+        private Layout(List<String> keys) {
+            this.columns = keys.toArray(new String[0]);
+            this.index = new HashMap<>(keys.size() * 2);
+            for (int i = 0; i < columns.length; i++) {
+                index.put(columns[i], i);
+            }
+        }
+    }
+
+    /**
+     * Read-only row backed by a value array.
+     */
+    static final class Row extends AbstractMap<String, Object> implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final Layout layout;
+        private final Object[] values;
+
+        private Row(Layout layout, Object[] values) {
+            this.layout = layout;
+            this.values = values;
+        }
+
+        /**
+         * @return whether the other row has the same column layout, i.e. positions mean the same columns
+         */
+        boolean sameLayout(Row other) {
+            return layout == other.layout;
+        }
+
+        /**
+         * @return the values in column order
+         */
+        Object[] toArray() {
+            return values.clone();
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer position = layout.index.get(key);
+            return position == null ? null : values[position];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return layout.index.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int position;
+
+                        @Override
+                        public boolean hasNext() {
+                            return position < values.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (position >= values.length) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, Object> entry = new SimpleImmutableEntry<>(layout.columns[position], values[position]);
+                            position++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return values.length;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.graphql.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.neo4j.driver.Record;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Resolves relationship fields for all parents requested at one level of a GraphQL request.
+ * <p>
+ * Keys are grouped by their {@link RelationshipQuery} so each relationship type costs a single
+ * {@code UNWIND $ids} round trip, avoiding both N+1 lookups and the cartesian product of chaining
+ * several OPTIONAL MATCH clauses off the same node.
+ */
+@Component
+@Slf4j
+public class RelationshipBatchLoader {
+
+    public static final String LOADER_NAME = "relationships";
+
+    private final ReadTransactions readTransactions;
+
+    public RelationshipBatchLoader(ReadTransactions readTransactions, BatchLoaderRegistry batchLoaderRegistry,
+                                   AsyncQueryExecutor asyncQueryExecutor) {
+        this.readTransactions = readTransactions;
+        batchLoaderRegistry.<RelationshipKey, Object>forName(LOADER_NAME)
+                .registerMappedBatchLoader((keys, environment) -> Mono.fromFuture(() -> asyncQueryExecutor.submit(() -> load(keys))));
+    }
+
+    /**
+     * @return the related node, or list of nodes for collection fields, by key; parents that are not found resolve
+     *         to an empty list for collection fields and are left out, i.e. resolve to {@code null}, otherwise
+     */
+    Map<RelationshipKey, Object> load(Set<RelationshipKey> keys) {
+        Map<RelationshipQuery, List<Object>> idsByQuery = new LinkedHashMap<>();
+        for (RelationshipKey key : keys) {
+            idsByQuery.computeIfAbsent(key.query(), query -> new ArrayList<>()).add(key.parentId());
+        }
+
+        Map<RelationshipKey, Object> results = new HashMap<>();
+        try {
+            for (Map.Entry<RelationshipQuery, List<Object>> entry : idsByQuery.entrySet()) {
+                RelationshipQuery query = entry.getKey();
+                log.debug("Loading relationship batch of {} parents: {}", entry.getValue().size(), query.cypher());
+                List<Record> records = readTransactions.read(LOADER_NAME, null,
+                        tx -> tx.run(query.cypher(), Map.of("ids", entry.getValue())).list());
+                for (Record record : records) {
+                    List<Object> related = record.get("related").asList();
+                    Object value = query.collection() ? related : (related.isEmpty() ? null : related.get(0));
+                    results.put(new RelationshipKey(query, record.get("parentId").asObject()), value);
+                }
+            }
+        } catch (Exception e) {
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Error loading relationships: " + e.getMessage(), e);
+        }
+        for (RelationshipKey key : keys) {
+            if (key.query().collection()) {
+                results.putIfAbsent(key, List.of());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param query    the relationship being resolved
+     * @param parentId the {@code id} property of the parent node
+     */
+    public record RelationshipKey(RelationshipQuery query, Object parentId) {
+    }
+}
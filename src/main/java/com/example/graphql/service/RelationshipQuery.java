@@ -0,0 +1,11 @@
+package com.example.graphql.service;
+
+/**
+ * Cypher resolving one relationship field for a batch of parents, see
+ * {@link SchemaBasedQueryGenerator#generateRelationshipQuery}.
+ *
+ * @param cypher     query taking {@code $ids} and returning {@code parentId, related}
+ * @param collection whether the field is a list, otherwise only the first related node is used
+ */
+public record RelationshipQuery(String cypher, boolean collection) {
+}
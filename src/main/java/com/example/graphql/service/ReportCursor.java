@@ -0,0 +1,80 @@
+package com.example.graphql.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import com.example.graphql.exceptions.GraphQlApplicationException;
+
+/**
+ * Opaque cursors for keyset pagination. A cursor wraps the keyset value of the last row of a page
+ * together with its type so that numeric keys are compared as numbers on the next request. Reports merged
+ * over several types carry one such key per type.
+ */
+final class ReportCursor {
+
+    private static final String STRING_PREFIX = "s:";
+    private static final String NUMBER_PREFIX = "n:";
+    private static final String MERGED_PREFIX = "m:";
+
+    private ReportCursor() {
+    }
+
+    static String encode(Object keyValue) {
+        if (keyValue == null) {
+            return null;
+        }
+        String raw = (keyValue instanceof Number ? NUMBER_PREFIX : STRING_PREFIX) + keyValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (raw.startsWith(NUMBER_PREFIX)) {
+                return Long.parseLong(raw.substring(NUMBER_PREFIX.length()));
+            } else if (raw.startsWith(STRING_PREFIX)) {
+                return raw.substring(STRING_PREFIX.length());
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through to the invalid cursor error below
+        }
+        throw new GraphQlApplicationException("INVALID_CURSOR", "Invalid cursor: " + cursor);
+    }
+
+    /**
+     * @param keyValues keyset value of the last returned row per report type, types without rows are left out
+     */
+    static String encodeAll(Map<String, Object> keyValues) {
+        StringJoiner raw = new StringJoiner(",", MERGED_PREFIX, "");
+        keyValues.forEach((type, keyValue) -> {
+            if (keyValue != null) {
+                raw.add(type + "=" + encode(keyValue));
+            }
+        });
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Map<String, Object> decodeAll(String cursor) {
+        Map<String, Object> keyValues = new LinkedHashMap<>();
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (raw.startsWith(MERGED_PREFIX)) {
+                for (String entry : raw.substring(MERGED_PREFIX.length()).split(",")) {
+                    int separator = entry.indexOf('=');
+                    if (separator > 0) {
+                        keyValues.put(entry.substring(0, separator), decode(entry.substring(separator + 1)));
+                    } else if (!entry.isEmpty()) {
+                        throw new IllegalArgumentException(entry);
+                    }
+                }
+                return keyValues;
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through to the invalid cursor error below
+        }
+        throw new GraphQlApplicationException("INVALID_CURSOR", "Invalid cursor: " + cursor);
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.graphql.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams complete reports as gzip compressed CSV or NDJSON.
+ * <p>
+ * The scan is split into key ranges on the template's {@code keyset} and the ranges are read on parallel
+ * sessions through the {@link AsyncQueryExecutor}. Rows are handed to the writing thread through a bounded
+ * queue as they arrive, so memory use does not depend on the report size and rows of different partitions
+ * are interleaved. Rendering and filtering are those of {@code customFullReport}.
+ * <p>
+ * Nothing is written before the first row has arrived, so an export failing up to that point fails before the
+ * response is committed. A later failure ends the file with an error marker, see {@link RowWriter#writeError}.
+ */
+@Service
+@Slf4j
+public class ReportExportService {
+
+    private static final Object PARTITION_DONE = new Object();
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final QueryService queryService;
+    private final AsyncQueryExecutor asyncQueryExecutor;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.export.partitions:4}")
+    private int partitions;
+
+    @Value("${app.export.queue-capacity:1024}")
+    private int queueCapacity;
+
+    public ReportExportService(QueryService queryService, AsyncQueryExecutor asyncQueryExecutor, ObjectMapper objectMapper) {
+        this.queryService = queryService;
+        this.asyncQueryExecutor = asyncQueryExecutor;
+        this.objectMapper = objectMapper;
+    }
+
+    public boolean supports(String type) {
+        return queryService.hasQuery(QueryService.reportQueryName(type));
+    }
+
+    /**
+     * Writes the report to the output stream and finishes the gzip stream. The output stream is not closed.
+     * When the export fails after rows have been written, an error marker is written and the gzip stream is
+     * finished before the exception is thrown.
+     *
+     * @param parameters report arguments as for {@code customFullReport}; {@code filters} are applied, paging and sort are ignored
+     */
+    public void export(String type, Map<String, Object> parameters, ExportFormat format, OutputStream out) throws IOException {
+        String queryName = QueryService.reportQueryName(type);
+        List<Object> boundaries = queryService.partitionBoundaries(queryName, parameters, partitions);
+        log.info("Exporting {} as {} in {} partitions", queryName, format, boundaries.size() + 1);
+
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        for (int partition = 0; partition <= boundaries.size(); partition++) {
+            Map<String, Object> partitionParameters = new HashMap<>(parameters);
+            partitionParameters.remove("limit");
+            partitionParameters.remove("offset");
+            if (partition > 0) {
+                partitionParameters.put("keysetFrom", boundaries.get(partition - 1));
+            }
+            if (partition < boundaries.size()) {
+                partitionParameters.put("keysetTo", boundaries.get(partition));
+            }
+            asyncQueryExecutor.submit(() -> {
+                queryService.forEachRow(queryName, partitionParameters, row -> offer(queue, row, cancelled));
+                return null;
+            }).whenComplete((ignored, error) -> offer(queue, error == null ? PARTITION_DONE
+                    : error instanceof CompletionException && error.getCause() != null ? error.getCause() : error, cancelled));
+        }
+
+        // the gzip header is written as soon as the stream is created, so it is only created for the first row
+        GZIPOutputStream gzip = null;
+        Writer writer = null;
+        RowWriter rowWriter = null;
+        try {
+            int running = boundaries.size() + 1;
+            while (running > 0) {
+                Object item = queue.take();
+                if (item == PARTITION_DONE) {
+                    running--;
+                    continue;
+                }
+                if (item instanceof Throwable error) {
+                    GraphQlApplicationException failure =
+                            new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Export failed: " + error.getMessage(), error);
+                    if (rowWriter != null) {
+                        rowWriter.writeError(failure.getMessage());
+                        writer.flush();
+                        gzip.finish();
+                    }
+                    throw failure;
+                }
+                if (rowWriter == null) {
+                    gzip = new GZIPOutputStream(out, 64 * 1024);
+                    writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024);
+                    rowWriter = format == ExportFormat.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+                }
+                rowWriter.write(castRow(item));
+            }
+            if (gzip == null) {
+                gzip = new GZIPOutputStream(out, 64 * 1024);
+            } else {
+                writer.flush();
+            }
+            gzip.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "Export interrupted", e);
+        } finally {
+            // stops partitions still reading, e.g. when the client went away
+            cancelled.set(true);
+        }
+    }
+
+    private static boolean offer(BlockingQueue<Object> queue, Object item, AtomicBoolean cancelled) {
+        try {
+            while (!cancelled.get()) {
+                if (queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castRow(Object item) {
+        return (Map<String, Object>) item;
+    }
+
+    private interface RowWriter {
+        void write(Map<String, Object> row) throws IOException;
+
+        /**
+         * Ends a failed export with a line no report row can produce: {@code #ERROR,<message>} in CSV and
+         * {@code {"error":<message>}} in NDJSON.
+         */
+        void writeError(String message) throws IOException;
+    }
+
+    /**
+     * RFC 4180 CSV with a header taken from the first row. Nested values are written as JSON.
+     */
+    private final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private List<String> columns;
+
+        private CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(Map<String, Object> row) throws IOException {
+            if (columns == null) {
+                columns = new ArrayList<>(row.keySet());
+                writeLine(columns.iterator());
+            }
+            List<Object> values = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                values.add(row.get(column));
+            }
+            writeLine(values.iterator());
+        }
+
+        @Override
+        public void writeError(String message) throws IOException {
+            writeLine(List.of("#ERROR", message).iterator());
+        }
+
+        private void writeLine(Iterator<?> values) throws IOException {
+            while (values.hasNext()) {
+                writeField(values.next());
+                if (values.hasNext()) {
+                    writer.write(',');
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(Object value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            String text = value instanceof Map<?, ?> || value instanceof Iterable<?> ? toJson(value) : value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                writer.write(text);
+            } else {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            }
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private NdjsonRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(Map<String, Object> row) throws IOException {
+            writer.write(toJson(row));
+            writer.write('\n');
+        }
+
+        @Override
+        public void writeError(String message) throws IOException {
+            writer.write(toJson(Map.of("error", message)));
+            writer.write('\n');
+        }
+    }
+
+    private String toJson(Object value) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(value);
+    }
+}
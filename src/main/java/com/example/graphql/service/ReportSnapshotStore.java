@@ -0,0 +1,392 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.owasp.esapi.ESAPI;
+import org.owasp.esapi.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves {@code customFullReport} for queries declaring {@code materialize} in {@code queries.yml} from an
+ * in-memory snapshot of the whole report instead of Neo4j.
+ * <p>
+ * A snapshot holds every row of the report in keyset order, as the compact read-only rows of {@link RecordProjector},
+ * together with the version of every key. Every {@code refresh} the keys and versions are read from the template's
+ * first MATCH; only the rows of added and changed keys are read again and the rows of removed keys are dropped.
+ * Every {@code rebuild} the report is reloaded completely, in batches of keys like a refresh so that no single
+ * transaction has to read the whole report, which also picks up changes of related nodes that leave the row's own
+ * version unchanged. Snapshots are swapped atomically and never modified; a failed refresh keeps the previous one
+ * and is counted in {@code report.snapshot.failures}.
+ * <p>
+ * Filters, sort and pagination run over the snapshot. Requests filtering or sorting on a field whose mapping is not
+ * returned as is under the field's name, e.g. {@code structure_state} or {@code manufacturer_name} of
+ * {@code getAntennaReport}, and requests arriving before the first load are left to Neo4j.
+ */
+@Service
+@Slf4j
+public class ReportSnapshotStore implements MeterBinder {
+
+    private static final Logger logger = ESAPI.getLogger(ReportSnapshotStore.class);
+    private static final int REFRESH_BATCH = 1000;
+    private static final int DEFAULT_LIMIT = 1000;
+
+    private final QueryService queryService;
+    private final Map<String, Set<String>> servableFields;
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> failures;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("report-snapshot-", 0).factory());
+
+    public ReportSnapshotStore(QueryService queryService) {
+        this.queryService = queryService;
+        Map<String, Set<String>> fields = new HashMap<>();
+        Map<String, LongAdder> failureCounts = new HashMap<>();
+        for (String queryName : queryService.getQueryNames()) {
+            QueryTemplate template = queryService.getTemplate(queryName);
+            if (template.getMaterialization() != null) {
+                fields.put(queryName, servableFields(template));
+                failureCounts.put(queryName, new LongAdder());
+            }
+        }
+        this.servableFields = Collections.unmodifiableMap(fields);
+        this.failures = Collections.unmodifiableMap(failureCounts);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSnapshots() {
+        for (String queryName : servableFields.keySet()) {
+            long refresh = queryService.getTemplate(queryName).getMaterialization().refresh().toMillis();
+            scheduler.scheduleWithFixedDelay(() -> refresh(queryName), 0, refresh, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Brings the snapshot of a query up to date, reloading it completely when there is none yet or its rebuild is due.
+     *
+     * @return whether the refresh succeeded
+     */
+    boolean refresh(String queryName) {
+        QueryTemplate template = queryService.getTemplate(queryName);
+        Snapshot current = snapshots.get(queryName);
+        long start = System.nanoTime();
+        try {
+            // Versions are read before the rows, a row changing in between is read again by the next refresh
+            Map<Object, Object> versions = queryService.keyVersions(queryName);
+            boolean rebuild = current == null
+                    || Duration.between(current.builtAt(), Instant.now()).compareTo(template.getMaterialization().rebuild()) >= 0;
+            Snapshot next = rebuild ? load(queryName, template, versions) : update(queryName, template, current, versions);
+            snapshots.put(queryName, next);
+            if (next != current) {
+                logger.info(Logger.EVENT_SUCCESS, (rebuild ? "Loaded" : "Refreshed") + " snapshot of " + queryName + ": "
+                        + next.rows().size() + " rows in " + Duration.ofNanos(System.nanoTime() - start).toMillis() + "ms");
+            }
+            return true;
+        } catch (Exception e) {
+            failures.get(queryName).increment();
+            logger.error(Logger.EVENT_FAILURE, "Failed to refresh snapshot of " + queryName + ": " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * @param first page size of a cursor page, or {@code null} for an offset page
+     * @param after cursor returned as {@code endCursor} by the previous page, only used for cursor pages
+     * @param count whether to add {@code pageInfo.totalCount}
+     * @return a map shaped like {@code ReportResult}, or {@code null} if the report has to be read from Neo4j
+     */
+    public Map<String, Object> getReport(String queryName, Map<String, Object> parameters, Integer first, String after, boolean count) {
+        Snapshot snapshot = snapshots.get(queryName);
+        Set<String> fields = servableFields.get(queryName);
+        if (snapshot == null || fields == null) {
+            return null;
+        }
+        QueryTemplate template = queryService.getTemplate(queryName);
+        List<Map<String, Object>> filters = entries(parameters.get("filters"));
+        List<Map<String, Object>> sort = entries(parameters.get("sort"));
+        for (Map<String, Object> entry : filters) {
+            // filters on unmapped fields are ignored, as in Cypher
+            if (!fields.contains(entry.get("field")) && template.getFieldMappings().containsKey(entry.get("field"))) {
+                return null;
+            }
+        }
+        for (Map<String, Object> entry : sort) {
+            if (!fields.contains(entry.get("field"))) {
+                return null;
+            }
+        }
+        Predicate<Map<String, Object>> matches = matcher(template, filters);
+        Map<String, Object> report = first != null
+                ? cursorPage(template, snapshot, matches, sort, first, after)
+                : offsetPage(snapshot, matches, sort, parameters);
+        if (count) {
+            Map<String, Object> pageInfo = report.get("pageInfo") instanceof Map<?, ?> existing
+                    ? new HashMap<>(castMap(existing)) : new HashMap<>();
+            pageInfo.put("totalCount", snapshot.rows().stream().filter(matches).count());
+            report.put("pageInfo", pageInfo);
+        }
+        return report;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String queryName : servableFields.keySet()) {
+            Gauge.builder("report.snapshot.rows", snapshots, current -> current.containsKey(queryName)
+                            ? current.get(queryName).rows().size() : Double.NaN)
+                    .description("Rows in the current report snapshot")
+                    .tag("query", queryName)
+                    .register(registry);
+            TimeGauge.builder("report.snapshot.age", snapshots, TimeUnit.SECONDS, current -> current.containsKey(queryName)
+                            ? Duration.between(current.get(queryName).refreshedAt(), Instant.now()).toSeconds() : Double.NaN)
+                    .description("Time since the report snapshot was last refreshed")
+                    .tag("query", queryName)
+                    .register(registry);
+            FunctionCounter.builder("report.snapshot.failures", failures.get(queryName), LongAdder::doubleValue)
+                    .description("Failed loads and refreshes of the report snapshot")
+                    .tag("query", queryName)
+                    .register(registry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private Snapshot load(String queryName, QueryTemplate template, Map<Object, Object> versions) {
+        List<Object> keys = new ArrayList<>(versions.keySet());
+        keys.sort(MultiTypeReportService::compareValues);
+        Map<Object, List<Map<String, Object>>> rowsByKey = new HashMap<>(keys.size() * 4 / 3 + 1);
+        readRows(queryName, template, keys, rowsByKey);
+        Instant now = Instant.now();
+        return new Snapshot(sortedRows(template, rowsByKey, versions.size()), versions, now, now);
+    }
+
+    private Snapshot update(String queryName, QueryTemplate template, Snapshot current, Map<Object, Object> versions) {
+        List<Object> changed = new ArrayList<>();
+        versions.forEach((key, version) -> {
+            if (!current.versions().containsKey(key) || !Objects.equals(current.versions().get(key), version)) {
+                changed.add(key);
+            }
+        });
+        Set<Object> removed = new HashSet<>(current.versions().keySet());
+        removed.removeAll(versions.keySet());
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return new Snapshot(current.rows(), current.versions(), current.builtAt(), Instant.now());
+        }
+        String keyColumn = template.getKeyset().column();
+        // A key may have several rows, e.g. one per parent, which are replaced together
+        Map<Object, List<Map<String, Object>>> rowsByKey = new HashMap<>(current.versions().size() * 4 / 3 + 1);
+        for (Map<String, Object> row : current.rows()) {
+            rowsByKey.computeIfAbsent(row.get(keyColumn), key -> new ArrayList<>(1)).add(row);
+        }
+        // Changed keys no longer matching the report are not read back and stay removed
+        rowsByKey.keySet().removeAll(removed);
+        changed.forEach(rowsByKey::remove);
+        readRows(queryName, template, changed, rowsByKey);
+        return new Snapshot(sortedRows(template, rowsByKey, current.rows().size()), versions, current.builtAt(), Instant.now());
+    }
+
+    /**
+     * Reads the rows of the given keys, {@link #REFRESH_BATCH} keys per read, and adds them to their key's rows.
+     */
+    private void readRows(String queryName, QueryTemplate template, List<Object> keys, Map<Object, List<Map<String, Object>>> rowsByKey) {
+        String keyColumn = template.getKeyset().column();
+        for (int from = 0; from < keys.size(); from += REFRESH_BATCH) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("keysetIn", new ArrayList<>(keys.subList(from, Math.min(from + REFRESH_BATCH, keys.size()))));
+            queryService.forEachRow(queryName, parameters, row -> {
+                rowsByKey.computeIfAbsent(row.get(keyColumn), key -> new ArrayList<>(1)).add(row);
+                return true;
+            });
+        }
+    }
+
+    private static List<Map<String, Object>> sortedRows(QueryTemplate template, Map<Object, List<Map<String, Object>>> rowsByKey, int expectedSize) {
+        String keyColumn = template.getKeyset().column();
+        List<Map<String, Object>> rows = new ArrayList<>(expectedSize);
+        rowsByKey.values().forEach(rows::addAll);
+        // The sort is stable, rows of one key keep the order they were read in
+        rows.sort(Comparator.comparing(row -> row.get(keyColumn), MultiTypeReportService::compareValues));
+        return Collections.unmodifiableList(rows);
+    }
+
+    private static Map<String, Object> offsetPage(Snapshot snapshot, Predicate<Map<String, Object>> matches,
+                                                  List<Map<String, Object>> sort, Map<String, Object> parameters) {
+        long offset = parameters.get("offset") instanceof Number number ? Math.max(number.longValue(), 0) : 0;
+        int limit = parameters.get("limit") instanceof Number number ? Math.max(number.intValue(), 0) : DEFAULT_LIMIT;
+        List<Map<String, Object>> rows;
+        if (sort.isEmpty()) {
+            rows = snapshot.rows().stream().filter(matches).skip(offset).limit(limit).toList();
+        } else {
+            // The sort is stable, rows equal on all sort fields stay in keyset order
+            List<Map<String, Object>> matching = new ArrayList<>(snapshot.rows().stream().filter(matches).toList());
+            matching.sort(MultiTypeReportService.rowOrder(sort));
+            rows = matching.subList((int) Math.min(offset, matching.size()), (int) Math.min(offset + limit, matching.size()));
+        }
+        Map<String, Object> report = new HashMap<>();
+        report.put("rows", List.copyOf(rows));
+        return report;
+    }
+
+    private static Map<String, Object> cursorPage(QueryTemplate template, Snapshot snapshot, Predicate<Map<String, Object>> matches,
+                                                  List<Map<String, Object>> sort, int first, String after) {
+        if (!sort.isEmpty()) {
+            throw new GraphQlApplicationException("CURSOR_NOT_SUPPORTED", "Cursor pagination cannot be combined with sort");
+        }
+        if (first < 1) {
+            throw new GraphQlApplicationException("INVALID_PAGE_SIZE", "first must be at least 1, got " + first);
+        }
+        String keyColumn = template.getKeyset().column();
+        List<Map<String, Object>> rows = snapshot.rows();
+        int start = 0;
+        if (after != null) {
+            Object afterKey = ReportCursor.decode(after);
+            // first row after the cursor, rows are in keyset order
+            int low = 0;
+            int high = rows.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (MultiTypeReportService.compareValues(rows.get(middle).get(keyColumn), afterKey) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            start = low;
+        }
+        List<Map<String, Object>> page = new ArrayList<>(Math.min(first, DEFAULT_LIMIT));
+        boolean hasNextPage = false;
+        for (int i = start; i < rows.size(); i++) {
+            Map<String, Object> row = rows.get(i);
+            if (!matches.test(row)) {
+                continue;
+            }
+            // A full page still takes the rest of its last key, the next page seeks past it
+            if (page.size() >= first && !Objects.equals(row.get(keyColumn), page.get(page.size() - 1).get(keyColumn))) {
+                hasNextPage = true;
+                break;
+            }
+            page.add(row);
+        }
+        if (page.size() > first) {
+            // As in QueryService#getReportPage the page ends before a key that does not fit, unless it is the only one
+            Object lastKey = page.get(page.size() - 1).get(keyColumn);
+            int end = page.size() - 1;
+            while (end > 0 && Objects.equals(page.get(end - 1).get(keyColumn), lastKey)) {
+                end--;
+            }
+            if (end > 0) {
+                page = new ArrayList<>(page.subList(0, end));
+                hasNextPage = true;
+            }
+        }
+        Map<String, Object> pageInfo = new HashMap<>();
+        pageInfo.put("pageSize", first);
+        pageInfo.put("hasNextPage", hasNextPage);
+        pageInfo.put("endCursor", page.isEmpty() ? null : ReportCursor.encode(page.get(page.size() - 1).get(keyColumn)));
+        Map<String, Object> report = new HashMap<>();
+        report.put("rows", page);
+        report.put("pageInfo", pageInfo);
+        return report;
+    }
+
+    /**
+     * Evaluates the filters on the returned columns as {@link QueryService#buildWhereClause} does in Cypher,
+     * including that comparisons with {@code null} or values of another type never match.
+     */
+    @SuppressWarnings("unchecked")
+    private Predicate<Map<String, Object>> matcher(QueryTemplate template, List<Map<String, Object>> filters) {
+        Predicate<Map<String, Object>> matcher = row -> true;
+        for (Map<String, Object> filter : filters) {
+            String field = (String) filter.get("field");
+            Object mapping = template.getFieldMappings().get(field);
+            if (mapping == null) {
+                continue;
+            }
+            List<Object> values = queryService.convertValues((List<String>) filter.get("values"), mapping);
+            Object value = values.size() == 1 ? values.get(0) : null;
+            Predicate<Object> condition = switch (String.valueOf(filter.get("op"))) {
+                case "EQ", "IN" -> column -> values.stream().anyMatch(candidate -> isComparableEqual(column, candidate));
+                case "CONTAINS" -> value == null ? null : column -> column instanceof String text && value instanceof String part && text.contains(part);
+                case "GT" -> value == null ? null : column -> MultiTypeReportService.isComparable(column, value)
+                        && MultiTypeReportService.compareValues(column, value) > 0;
+                case "LT" -> value == null ? null : column -> MultiTypeReportService.isComparable(column, value)
+                        && MultiTypeReportService.compareValues(column, value) < 0;
+                case "NEQ" -> value == null ? null : column -> column != null && !isComparableEqual(column, value);
+                default -> null;
+            };
+            if (condition != null) {
+                matcher = matcher.and(row -> condition.test(row.get(field)));
+            }
+        }
+        return matcher;
+    }
+
+    private static boolean isComparableEqual(Object column, Object value) {
+        return MultiTypeReportService.isComparable(column, value) && MultiTypeReportService.compareValues(column, value) == 0;
+    }
+
+    /**
+     * @return the fields whose mapping is returned unchanged as the column of the same name, so that filtering and
+     *         sorting the column gives the rows Neo4j would return
+     */
+    static Set<String> servableFields(QueryTemplate template) {
+        String cypher = template.render(placeholder -> "");
+        Set<String> fields = new HashSet<>();
+        template.getFieldMappings().forEach((field, mapping) -> {
+            String dbField = mapping instanceof Map<?, ?> map ? (String) map.get("dbField") : mapping instanceof String string ? string : null;
+            if (dbField != null && Pattern.compile("(?<![\\w.])" + Pattern.quote(dbField) + "\\s+(?i:as)\\s+" + Pattern.quote(field) + "\\b")
+                    .matcher(cypher).find()) {
+                fields.add(field);
+            }
+        });
+        return Collections.unmodifiableSet(fields);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> entries(Object value) {
+        return value instanceof List<?> list ? (List<Map<String, Object>>) list : List.of();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Map<?, ?> map) {
+        return (Map<String, Object>) map;
+    }
+
+    /**
+     * @param rows       every row of the report, in keyset order
+     * @param versions   the version of every key the template's first MATCH returned, including keys without a row
+     * @param builtAt    when the report was last loaded completely
+     * @param refreshedAt when the snapshot was last brought up to date
+     */
+    private record Snapshot(List<Map<String, Object>> rows, Map<Object, Object> versions, Instant builtAt, Instant refreshedAt) {
+    }
+}
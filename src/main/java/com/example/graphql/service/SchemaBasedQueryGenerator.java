@@ -2,44 +2,170 @@ package com.example.graphql.service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.graphql.execution.GraphQlSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingFieldSelectionSet;
 import graphql.schema.GraphQLFieldDefinition;
-import graphql.schema.GraphQLList;
-import graphql.schema.GraphQLNonNull;
 import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.GraphQLType;
 import graphql.schema.SelectedField;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
-public class SchemaBasedQueryGenerator {
+public class SchemaBasedQueryGenerator implements MeterBinder {
+
+    private static final int QUERY_CACHE_SIZE = 512;
+
+    /**
+     * Generated cypher keyed by selection shape. Argument values are always bound as parameters,
+     * so the text only depends on the root field, the argument names and the selected fields.
+     */
+    private final Cache<String, String> queryCache = Caffeine.newBuilder()
+            .maximumSize(QUERY_CACHE_SIZE)
+            .recordStats()
+            .build();
+
+    /**
+     * Batched relationship queries keyed by {@code ParentType.field}; bounded by the schema itself.
+     */
+    private final Map<String, RelationshipQuery> relationshipQueries = new ConcurrentHashMap<>();
+
+    private volatile SchemaMetadata schemaMetadata;
+
+    /**
+     * Builds the schema metadata once the schema is loaded, so the first request does not pay for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSchemaMetadata(ApplicationReadyEvent event) {
+        event.getApplicationContext().getBeanProvider(GraphQlSource.class)
+                .ifAvailable(graphQlSource -> metadataFor(graphQlSource.schema()));
+    }
 
     public String generateQuery(DataFetchingEnvironment environment) {
         String fieldName = environment.getField().getName();
+        String shape = selectionShape(fieldName, environment);
+        return queryCache.get(shape, key -> buildQuery(fieldName, environment, true));
+    }
+
+    /**
+     * Generates a query returning only the matched nodes' own properties. Used when relationship
+     * fields are resolved by their own batched data fetchers rather than OPTIONAL MATCH.
+     */
+    public String generateNodeQuery(DataFetchingEnvironment environment) {
+        String fieldName = environment.getField().getName();
+        String shape = "node:" + selectionShape(fieldName, environment);
+        return queryCache.get(shape, key -> buildQuery(fieldName, environment, false));
+    }
+
+    /**
+     * Generates the query resolving one relationship field for a batch of parent ids bound as {@code $ids}.
+     * Each row carries the {@code parentId} and the {@code related} node maps.
+     */
+    public RelationshipQuery generateRelationshipQuery(GraphQLObjectType parentType, GraphQLFieldDefinition fieldDef) {
+        return relationshipQueries.computeIfAbsent(parentType.getName() + "." + fieldDef.getName(), key -> {
+            SchemaMetadata.Relationship relationship = typeMetadata(parentType).relationship(fieldDef.getName());
+            if (relationship == null) {
+                throw new GraphQlApplicationException("SCHEMA_GENERATION_ERROR",
+                        "Field " + parentType.getName() + "." + fieldDef.getName() + " is not a relationship");
+            }
+            StringBuilder cypher = new StringBuilder();
+            cypher.append("UNWIND $ids AS parentId MATCH (n:").append(parentType.getName()).append(") WHERE n.id = parentId");
+            prepareOptionalQueryMatch(parentType.getName(), parentType, List.of(relationship.field()), cypher);
+            cypher.append(" RETURN parentId, collect(").append(relationship.variable()).append("{.*}) AS related");
+            return new RelationshipQuery(cypher.toString(), relationship.collection());
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, queryCache, "generatedQueries");
+    }
+
+    /**
+     * @return hit/miss counters of the generated query cache
+     */
+    public CacheStats getCacheStats() {
+        return queryCache.stats();
+    }
+
+    /**
+     * @return the metadata of the given schema, rebuilt only when the schema instance changes
+     */
+    SchemaMetadata metadataFor(GraphQLSchema schema) {
+        SchemaMetadata metadata = schemaMetadata;
+        if (metadata == null || metadata.getSchema() != schema) {
+            metadata = SchemaMetadata.of(schema);
+            schemaMetadata = metadata;
+        }
+        return metadata;
+    }
+
+    private SchemaMetadata.TypeMetadata typeMetadata(GraphQLObjectType objectType) {
+        SchemaMetadata metadata = schemaMetadata;
+        return metadata != null ? metadata.type(objectType) : SchemaMetadata.TypeMetadata.of(objectType);
+    }
+
+    String selectionShape(String fieldName, DataFetchingEnvironment environment) {
+        StringBuilder shape = new StringBuilder(fieldName).append('(');
+        Map<String, Object> arguments = environment.getArguments();
+        if (arguments != null) {
+            shape.append(String.join(",", arguments.keySet()));
+        }
+        shape.append("){");
+        DataFetchingFieldSelectionSet selectionSet = environment.getSelectionSet();
+        if (selectionSet != null) {
+            for (SelectedField selectedField : selectionSet.getFields()) {
+                shape.append(selectedField.getName()).append(',');
+            }
+        }
+        return shape.append('}').toString();
+    }
+
+    private String buildQuery(String fieldName, DataFetchingEnvironment environment, boolean includeRelationships) {
         log.debug("Generating Cypher query for field: {}", fieldName);
         GraphQLSchema schema = environment.getGraphQLSchema();
-        
-        // Determine if this is a single or list query
-        boolean isList = fieldName.endsWith("s");
-        String typeName = getTypeNameFromField(fieldName, isList);
-        
-        // Get the GraphQL type definition
-        GraphQLType type = schema.getType(typeName);
-        if (!(type instanceof GraphQLObjectType)) {
-            throw new GraphQlApplicationException("SCHEMA_GENERATION_ERROR", "Type " + typeName + " not found in schema");
+        SchemaMetadata.RootField rootField = metadataFor(schema).rootField(fieldName);
+
+        boolean isList;
+        String typeName;
+        GraphQLObjectType objectType;
+        if (rootField != null) {
+            isList = rootField.list();
+            typeName = rootField.typeName();
+            objectType = rootField.objectType();
+        } else {
+            // Fields not declared on the Query type fall back to the naming convention
+            isList = fieldName.endsWith("s");
+            typeName = getTypeNameFromField(fieldName, isList);
+            GraphQLType type = schema.getType(typeName);
+            if (!(type instanceof GraphQLObjectType)) {
+                throw new GraphQlApplicationException("SCHEMA_GENERATION_ERROR", "Type " + typeName + " not found in schema");
+            }
+            objectType = (GraphQLObjectType) type;
         }
-        
-        GraphQLObjectType objectType = (GraphQLObjectType) type;
-        
-        if (isList) {
+
+        if (!includeRelationships) {
+            return generateNodeOnlyQuery(typeName, isList, environment);
+        } else if (isList) {
             return generateListQuery(typeName, objectType, environment);
         } else {
             return generateSingleQuery(typeName, objectType, environment);
@@ -50,7 +176,33 @@ public class SchemaBasedQueryGenerator {
         StringBuilder cypher = new StringBuilder();
         cypher.append("MATCH (n:").append(typeName).append(")");
         
-        Map<String, Object> arguments = environment.getArguments();
+        appendArgumentConditions(environment.getArguments(), cypher);
+        
+        // Get requested relationship fields from GraphQL selection
+        List<String> relationshipFields = getRelationshipFields(environment, objectType);
+        
+        // Add OPTIONAL MATCH for each relationship
+        prepareOptionalQueryMatch(typeName, objectType, relationshipFields, cypher);
+
+        // Add WITH clause for proper grouping when using collect()
+        prepareQueryWithClauseAndGrouping(typeName, objectType, environment, relationshipFields, cypher);
+        return cypher.toString();
+    }
+
+    String generateNodeOnlyQuery(String typeName, boolean isList, DataFetchingEnvironment environment) {
+        StringBuilder cypher = new StringBuilder();
+        cypher.append("MATCH (n:").append(typeName).append(")");
+        if (isList) {
+            appendArgumentConditions(environment.getArguments(), cypher);
+        } else {
+            cypher.append(" WHERE n.id = $id");
+        }
+        prepareRelationshipFields(typeName, List.of(), cypher);
+        cypher.append(" LIMIT 10 ");
+        return cypher.toString();
+    }
+
+    private void appendArgumentConditions(Map<String, Object> arguments, StringBuilder cypher) {
         if (!arguments.isEmpty()) {
             cypher.append(" WHERE ");
             boolean first = true;
@@ -62,31 +214,21 @@ public class SchemaBasedQueryGenerator {
                 first = false;
             }
         }
-        
-        // Get requested relationship fields from GraphQL selection
-        List<String> relationshipFields = getRelationshipFields(environment, objectType);
-        
-        // Add OPTIONAL MATCH for each relationship
-        prepareOptionalQueryMatch(typeName, objectType, relationshipFields, cypher);
-
-        // Add WITH clause for proper grouping when using collect()
-        prepareQueryWithClauseAndGrouping(typeName, objectType, environment, relationshipFields, cypher);
-        return cypher.toString();
     }
 
     void prepareOptionalQueryMatch(String typeName, GraphQLObjectType objectType, List<String> relationshipFields, StringBuilder cypher) {
+        SchemaMetadata.TypeMetadata metadata = typeMetadata(objectType);
         for (String relField : relationshipFields) {
-            GraphQLFieldDefinition fieldDef = objectType.getFieldDefinition(relField);
-            String relatedTypeName = getRelatedTypeName(fieldDef);
-            String relationshipName = deriveRelationshipName(typeName, relField, relatedTypeName);
+            SchemaMetadata.Relationship relationship = metadata.relationship(relField);
+            String relationshipName = deriveRelationshipName(typeName, relField, relationship.targetType());
 
             cypher.append(" OPTIONAL MATCH ");
-            if (isCollectionField(fieldDef)) {
-                cypher.append("(").append(relField.toLowerCase()).append(":").append(relatedTypeName)
+            if (relationship.collection()) {
+                cypher.append("(").append(relationship.variable()).append(":").append(relationship.targetType())
                       .append(")-[:").append(relationshipName).append("]->(n)");
             } else {
                 cypher.append("(n)-[:").append(relationshipName).append("]->(")
-                      .append(relField.toLowerCase()).append(":").append(relatedTypeName).append(")");
+                      .append(relationship.variable()).append(":").append(relationship.targetType()).append(")");
             }
         }
     }
@@ -107,8 +249,9 @@ public class SchemaBasedQueryGenerator {
     }
 
     void prepareQueryWithClauseAndGrouping(String typeName, GraphQLObjectType objectType, DataFetchingEnvironment environment, List<String> relationshipFields, StringBuilder cypher) {
+        SchemaMetadata.TypeMetadata metadata = typeMetadata(objectType);
         boolean hasCollections = relationshipFields.stream()
-                .anyMatch(relField -> isCollectionField(objectType.getFieldDefinition(relField)));
+                .anyMatch(relField -> metadata.relationship(relField).collection());
 
         if (hasCollections) {
             prepareForCollection(typeName, objectType, relationshipFields, cypher);
@@ -116,14 +259,17 @@ public class SchemaBasedQueryGenerator {
             prepareRelationshipFields(typeName, relationshipFields, cypher);
         } else {
             // Get all requested fields from GraphQL selection
-            prepareForNonCollectionAndRelationshipFields(typeName, environment, cypher);
+            prepareForNonCollectionAndRelationshipFields(typeName, objectType, environment, cypher);
         }
         cypher.append(" LIMIT 10 ");
     }
 
-    void prepareForNonCollectionAndRelationshipFields(String typeName, DataFetchingEnvironment environment, StringBuilder cypher) {
+    void prepareForNonCollectionAndRelationshipFields(String typeName, GraphQLObjectType objectType, DataFetchingEnvironment environment,
+                                                      StringBuilder cypher) {
+        Set<String> scalarFields = typeMetadata(objectType).scalarFields();
         List<String> requestedFields = environment.getSelectionSet().getFields().stream()
                 .map(SelectedField::getName)
+                .filter(scalarFields::contains)
                 .toList();
 
         if (requestedFields.isEmpty()) {
@@ -149,12 +295,13 @@ public class SchemaBasedQueryGenerator {
 
     void prepareForCollection(String typeName, GraphQLObjectType objectType, List<String> relationshipFields, StringBuilder cypher) {
         cypher.append(" WITH n");
+        SchemaMetadata.TypeMetadata metadata = typeMetadata(objectType);
         for (String relField : relationshipFields) {
-            GraphQLFieldDefinition fieldDef = objectType.getFieldDefinition(relField);
-            if (isCollectionField(fieldDef)) {
-                cypher.append(", collect(").append(relField.toLowerCase()).append(") as ").append(relField);
+            SchemaMetadata.Relationship relationship = metadata.relationship(relField);
+            if (relationship.collection()) {
+                cypher.append(", collect(").append(relationship.variable()).append(") as ").append(relField);
             } else {
-                cypher.append(", ").append(relField.toLowerCase()).append(" as ").append(relField);
+                cypher.append(", ").append(relationship.variable()).append(" as ").append(relField);
             }
         }
         cypher.append(" RETURN n{.*");
@@ -182,52 +329,14 @@ public class SchemaBasedQueryGenerator {
     }
 
     List<String> getRelationshipFields(DataFetchingEnvironment environment, GraphQLObjectType objectType) {
+        SchemaMetadata.TypeMetadata metadata = typeMetadata(objectType);
         return environment.getSelectionSet().getFields().stream()
                 .map(SelectedField::getName)
-                .filter(fieldName -> !isPrimitiveField(fieldName))
-                .filter(fieldName -> objectType.getFieldDefinition(fieldName) != null)
+                .filter(fieldName -> metadata.relationship(fieldName) != null)
+                .distinct()
                 .collect(Collectors.toList());
     }
     
-    private boolean isPrimitiveField(String fieldName) {
-        return fieldName.equals("id") || fieldName.equals("name") || fieldName.equals("type");
-    }
-    
-    private String getRelatedTypeName(GraphQLFieldDefinition fieldDef) {
-        // Get the actual type name from the GraphQL type
-        GraphQLType type = fieldDef.getType();
-        
-        // Unwrap list and non-null wrappers to get the actual type
-        while (type instanceof GraphQLNonNull || type instanceof GraphQLList) {
-            if (type instanceof GraphQLNonNull) {
-                type = ((GraphQLNonNull) type).getWrappedType();
-            } else if (type instanceof GraphQLList) {
-                type = ((GraphQLList) type).getWrappedType();
-            }
-        }
-        
-        if (type instanceof GraphQLObjectType) {
-            return ((GraphQLObjectType) type).getName();
-        }
-        
-        // Fallback to string parsing if needed
-        String typeName = type.toString();
-        if (typeName.contains("{")) {
-            // Extract just the name from GraphQLObjectType{name='Shelf'...}
-            int nameStart = typeName.indexOf("name='") + 6;
-            int nameEnd = typeName.indexOf("'", nameStart);
-            if (nameStart > 5 && nameEnd > nameStart) {
-                return typeName.substring(nameStart, nameEnd);
-            }
-        }
-        
-        return typeName.replaceAll("[\\[\\]!]", "");
-    }
-    
-    private boolean isCollectionField(GraphQLFieldDefinition fieldDef) {
-        return fieldDef.getType().toString().contains("[");
-    }
-    
     private String deriveRelationshipName(String fromType, String fieldName, String toType) {
         // Generic relationship naming convention
         // Could be made configurable via properties or annotations
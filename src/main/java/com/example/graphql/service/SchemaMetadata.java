@@ -0,0 +1,127 @@
+package com.example.graphql.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLNamedType;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+
+/**
+ * What {@link SchemaBasedQueryGenerator} needs to know about the schema, computed once per schema instance
+ * so that generating a query only does map lookups instead of inspecting type wrappers per request.
+ * <p>
+ * Every {@code Query} field returning an object type is mapped to its target type and whether it returns a
+ * list. Every object type is split into its scalar fields and its relationship fields, the latter with the
+ * related type and their cardinality.
+ */
+final class SchemaMetadata {
+
+    private final GraphQLSchema schema;
+    private final Map<String, RootField> rootFields;
+    private final Map<String, TypeMetadata> types;
+
+    private SchemaMetadata(GraphQLSchema schema, Map<String, RootField> rootFields, Map<String, TypeMetadata> types) {
+        this.schema = schema;
+        this.rootFields = rootFields;
+        this.types = types;
+    }
+
+    static SchemaMetadata of(GraphQLSchema schema) {
+        Map<String, TypeMetadata> types = new HashMap<>();
+        for (GraphQLNamedType type : schema.getAllTypesAsList()) {
+            if (type instanceof GraphQLObjectType objectType && !objectType.getName().startsWith("__")) {
+                types.put(objectType.getName(), TypeMetadata.of(objectType));
+            }
+        }
+        Map<String, RootField> rootFields = new HashMap<>();
+        GraphQLObjectType queryType = schema.getQueryType();
+        if (queryType != null) {
+            for (GraphQLFieldDefinition field : queryType.getFieldDefinitions()) {
+                if (GraphQLTypeUtil.unwrapAll(field.getType()) instanceof GraphQLObjectType objectType) {
+                    rootFields.put(field.getName(), new RootField(objectType, isList(field.getType())));
+                }
+            }
+        }
+        return new SchemaMetadata(schema, Collections.unmodifiableMap(rootFields), Collections.unmodifiableMap(types));
+    }
+
+    GraphQLSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return the target of a {@code Query} field, or {@code null} if the field does not return an object type
+     */
+    RootField rootField(String fieldName) {
+        return rootFields.get(fieldName);
+    }
+
+    /**
+     * @return the precomputed metadata of the type, computed on the spot for types that are not part of this schema
+     */
+    TypeMetadata type(GraphQLObjectType objectType) {
+        TypeMetadata metadata = types.get(objectType.getName());
+        return metadata != null && metadata.objectType() == objectType ? metadata : TypeMetadata.of(objectType);
+    }
+
+    private static boolean isList(GraphQLType type) {
+        return GraphQLTypeUtil.isList(GraphQLTypeUtil.unwrapNonNull(type));
+    }
+
+    /**
+     * @param objectType the type returned by the field
+     * @param list       whether the field returns a list of it
+     */
+    record RootField(GraphQLObjectType objectType, boolean list) {
+
+        String typeName() {
+            return objectType.getName();
+        }
+    }
+
+    /**
+     * @param field      the relationship field name
+     * @param variable   the cypher variable bound to the related nodes
+     * @param targetType the related type name, which is also its node label
+     * @param collection whether the field returns a list
+     */
+    record Relationship(String field, String variable, String targetType, boolean collection) {
+    }
+
+    /**
+     * @param objectType    the described type
+     * @param scalarFields  fields holding node properties, in schema order
+     * @param relationships fields resolving to other nodes, keyed by field name
+     */
+    record TypeMetadata(GraphQLObjectType objectType, Set<String> scalarFields, Map<String, Relationship> relationships) {
+
+        static TypeMetadata of(GraphQLObjectType objectType) {
+            Set<String> scalarFields = new LinkedHashSet<>();
+            Map<String, Relationship> relationships = new LinkedHashMap<>();
+            for (GraphQLFieldDefinition field : objectType.getFieldDefinitions()) {
+                if (GraphQLTypeUtil.unwrapAll(field.getType()) instanceof GraphQLObjectType related) {
+                    relationships.put(field.getName(), new Relationship(field.getName(), field.getName().toLowerCase(),
+                            related.getName(), isList(field.getType())));
+                } else {
+                    scalarFields.add(field.getName());
+                }
+            }
+            return new TypeMetadata(objectType, Collections.unmodifiableSet(scalarFields), Collections.unmodifiableMap(relationships));
+        }
+
+        /**
+         * @return the relationship, or {@code null} if the field is a scalar or does not exist
+         */
+        Relationship relationship(String fieldName) {
+            return relationships.get(fieldName);
+        }
+    }
+}
@@ -1,21 +1,60 @@
 package com.example.graphql.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import com.example.graphql.service.AsyncQueryExecutor;
+import com.example.graphql.service.MultiTypeReportService;
+import com.example.graphql.service.QueryMetrics;
 import com.example.graphql.service.QueryService;
+import com.example.graphql.service.ReadTransactions;
+import com.example.graphql.service.RelationshipBatchLoader;
+import com.example.graphql.service.RelationshipQuery;
+import com.example.graphql.service.ReportSnapshotStore;
 import com.example.graphql.service.SchemaBasedQueryGenerator;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.dataloader.DataLoader;
+import static org.mockito.ArgumentMatchers.any;
 import org.mockito.Mock;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import com.telstra.tni.commonutils.neo4j.DatabaseDriver;
-
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.Scalars;
+import graphql.language.Field;
+import graphql.scalars.ExtendedScalars;
 import graphql.schema.DataFetcher;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.WiringFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 import graphql.schema.DataFetchingEnvironment;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,36 +63,43 @@ class GraphQLConfigTest {
     @Mock
     private SchemaBasedQueryGenerator schemaBasedQueryGenerator;
     @Mock
-    private DatabaseDriver databaseDriver;
+    private ReadTransactions readTransactions;
     @Mock
     private QueryService queryService;
     @Mock
+    private MultiTypeReportService multiTypeReportService;
+    @Mock
+    private ReportSnapshotStore reportSnapshotStore;
+    @Mock
     private DataFetchingEnvironment environment;
 
     private GraphQLConfig graphQLConfig;
 
     @BeforeEach
     void setUp() {
-        graphQLConfig = new GraphQLConfig(schemaBasedQueryGenerator, databaseDriver, queryService);
+        graphQLConfig = new GraphQLConfig(schemaBasedQueryGenerator, readTransactions, queryService,
+                new AsyncQueryExecutor(4, Duration.ofSeconds(5)), new QueryMetrics(new SimpleMeterRegistry()),
+                multiTypeReportService, reportSnapshotStore);
     }
 
     @Test
     void testGenericDataFetcher() throws Exception {
         DataFetcher<Object> fetcher = graphQLConfig.genericDataFetcher();
         
+        when(environment.getField()).thenReturn(new Field("antennas"));
         when(schemaBasedQueryGenerator.generateQuery(environment)).thenReturn("MATCH (n) RETURN n");
         when(environment.getArguments()).thenReturn(Collections.emptyMap());
-        // Since executeQuery is private and uses databaseDriver, we can't fully execute it without mocking deep Neo4j classes (Session, Result, etc) 
+        // Since executeQuery is private and uses readTransactions, we can't fully execute it without mocking deep Neo4j classes (Session, Result, etc) 
         // which are already covered in QueryServiceTest and difficult to mock here without refactoring.
         // However, we can verify schemaBasedQueryGenerator is called.
-        // And since we didn't mock databaseDriver.sessionFor(), it will throw NPE if it proceeds, 
+        // And since we didn't mock readTransactions.read(), it will throw NPE if it proceeds, 
         // OR we can mock it to return a mock session.
         
         // Let's just verify the generator call which happens before DB execution
         try {
             fetcher.get(environment);
         } catch (Exception e) {
-            // Expected NPE from databaseDriver
+            // Expected NPE from readTransactions
         }
         
         verify(schemaBasedQueryGenerator).generateQuery(environment);
@@ -65,12 +111,26 @@ class GraphQLConfigTest {
         
         when(environment.getArgument("queryName")).thenReturn("testQuery");
         when(environment.getArgument("parameters")).thenReturn(Collections.emptyMap());
+        when(queryService.hasQuery("testQuery")).thenReturn(true);
         
-        fetcher.get(environment);
+        ((CompletableFuture<?>) fetcher.get(environment)).join();
         
         verify(queryService).getQueryResult("testQuery", Collections.emptyMap());
     }
 
+    @Test
+    void runQueryDataFetcher_RejectsUnknownQueryWithoutRecordingMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        graphQLConfig = new GraphQLConfig(schemaBasedQueryGenerator, readTransactions, queryService,
+                new AsyncQueryExecutor(4, Duration.ofSeconds(5)), new QueryMetrics(registry), multiTypeReportService, reportSnapshotStore);
+        when(environment.getArgument("queryName")).thenReturn("random-1234");
+        when(environment.getArgument("parameters")).thenReturn(Collections.emptyMap());
+
+        assertThrows(GraphQlApplicationException.class, () -> graphQLConfig.runQueryDataFetcher().get(environment));
+        assertTrue(registry.find("graphql.query.stage").meters().isEmpty());
+        verify(queryService, never()).getQueryResult(any(), any());
+    }
+
     @Test
     void testCreateDynamicDataFetcher() throws Exception {
         DataFetcher<Object> fetcher = graphQLConfig.createDynamicDataFetcher("dynamicQuery");
@@ -80,7 +140,7 @@ class GraphQLConfigTest {
         
         when(environment.getArguments()).thenReturn(args);
         
-        fetcher.get(environment);
+        ((CompletableFuture<?>) fetcher.get(environment)).join();
         
         // Verify defaults added
         Map<String, Object> expectedArgs = new java.util.HashMap<>();
@@ -91,4 +151,125 @@ class GraphQLConfigTest {
         
         verify(queryService).getQueryResult("dynamicQuery", expectedArgs);
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relationshipDataFetcher_LoadsRelatedNodesThroughBatchLoader() throws Exception {
+        GraphQLObjectType antenna = GraphQLObjectType.newObject().name("Antenna").build();
+        GraphQLFieldDefinition site = GraphQLFieldDefinition.newFieldDefinition().name("site").type(Scalars.GraphQLString).build();
+        RelationshipQuery query = new RelationshipQuery("UNWIND $ids AS parentId RETURN parentId", false);
+        DataLoader<RelationshipBatchLoader.RelationshipKey, Object> loader = mock(DataLoader.class);
+        CompletableFuture<Object> related = CompletableFuture.completedFuture(Map.of("name", "S1"));
+        when(environment.getSource()).thenReturn(Map.of("id", "A1"));
+        when(environment.getField()).thenReturn(new Field("site"));
+        when(environment.getParentType()).thenReturn(antenna);
+        when(environment.getFieldDefinition()).thenReturn(site);
+        when(schemaBasedQueryGenerator.generateRelationshipQuery(antenna, site)).thenReturn(query);
+        when(environment.<RelationshipBatchLoader.RelationshipKey, Object>getDataLoader(RelationshipBatchLoader.LOADER_NAME)).thenReturn(loader);
+        when(loader.load(new RelationshipBatchLoader.RelationshipKey(query, "A1"))).thenReturn(related);
+
+        assertSame(related, graphQLConfig.relationshipDataFetcher().get(environment));
+    }
+
+    @Test
+    void relationshipDataFetcher_PrefersValuesProjectedByParentQuery() throws Exception {
+        when(environment.getSource()).thenReturn(Map.of("id", "A1", "site", Map.of("name", "S1")));
+        when(environment.getField()).thenReturn(new Field("site"));
+
+        assertEquals(Map.of("name", "S1"), graphQLConfig.relationshipDataFetcher().get(environment));
+        verifyNoInteractions(schemaBasedQueryGenerator);
+    }
+
+    @Test
+    void relationshipWiringConfigurer_WiresFieldsBetweenNodeTypesOnly() {
+        GraphQLSchema schema = batchedSchema(RuntimeWiring.newRuntimeWiring());
+
+        DataFetcher<?> relationshipFetcher = dataFetcher(schema, "Antenna", "site");
+        assertSame(relationshipFetcher, dataFetcher(schema, "Antenna", "ports"));
+        assertNotSame(relationshipFetcher, dataFetcher(schema, "Antenna", "name"));
+        assertNotSame(relationshipFetcher, dataFetcher(schema, "Query", "antennas"));
+        assertNotSame(relationshipFetcher, dataFetcher(schema, "Query", "customFullReport"));
+        assertNotSame(relationshipFetcher, dataFetcher(schema, "ReportResult", "pageInfo"));
+        assertNotSame(relationshipFetcher, dataFetcher(schema, "Subscription", "customFullReportStream"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relationshipWiringConfigurer_KeepsExplicitSubscriptionFetcher() {
+        GraphQLSchema schema = batchedSchema(RuntimeWiring.newRuntimeWiring()
+                .type("Subscription", type -> type.dataFetcher("customFullReportStream",
+                        environment -> Flux.just(Map.of("sequence", 1, "rows", List.of(Map.of("id", "ANT-1")))))));
+
+        ExecutionResult result = GraphQL.newGraphQL(schema).build()
+                .execute("subscription { customFullReportStream(type: \"Antenna\") { sequence rows } }");
+
+        assertTrue(result.getErrors().isEmpty());
+        ExecutionResult chunk = Flux.from((Publisher<ExecutionResult>) result.getData()).blockFirst();
+        Map<String, Object> stream = (Map<String, Object>) ((Map<String, Object>) chunk.getData()).get("customFullReportStream");
+        assertEquals(1, stream.get("sequence"));
+        assertEquals(List.of(Map.of("id", "ANT-1")), stream.get("rows"));
+    }
+
+    private GraphQLSchema batchedSchema(RuntimeWiring.Builder builder) {
+        ReflectionTestUtils.setField(graphQLConfig, "batchRelationships", true);
+        List<WiringFactory> factories = new ArrayList<>();
+        graphQLConfig.relationshipWiringConfigurer().configure(builder, factories);
+        return new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse("""
+                scalar JSON
+                type Query { antennas: [Antenna] customFullReport(type: String): ReportResult }
+                type Subscription { customFullReportStream(type: String!): ReportChunk }
+                type Antenna { id: ID name: String site: Site ports: [Port] }
+                type Site { id: ID name: String }
+                type Port { id: ID name: String }
+                type PageInfo { hasNextPage: Boolean endCursor: String }
+                type ReportResult { rows: [JSON] pageInfo: PageInfo }
+                type ReportChunk { sequence: Int rows: [JSON] }
+                """), builder.scalar(ExtendedScalars.Json).wiringFactory(factories.get(0)).build());
+    }
+
+    @Test
+    void formatReport_MovesRowsIntoColumnarField() {
+        Map<String, Object> report = Map.of("rows", java.util.List.of(Map.of("id", "ANT-1")), "pageInfo", Map.of("pageSize", 1));
+
+        assertSame(report, GraphQLConfig.formatReport(report, null));
+        Map<String, Object> columnar = GraphQLConfig.formatReport(report, "COLUMNAR");
+        assertNull(columnar.get("rows"));
+        assertEquals(java.util.List.of("id"), ((Map<?, ?>) columnar.get("columnar")).get("columns"));
+        assertEquals(report.get("pageInfo"), columnar.get("pageInfo"));
+    }
+
+    @Test
+    void withTotalCount_AddsCountWithoutChangingCachedReport() {
+        Map<String, Object> report = Map.of("rows", java.util.List.of(), "pageInfo", Map.of("hasNextPage", true));
+
+        assertSame(report, GraphQLConfig.withTotalCount(report, null));
+        Map<String, Object> counted = GraphQLConfig.withTotalCount(report, 42L);
+        assertEquals(Map.of("hasNextPage", true, "totalCount", 42L), counted.get("pageInfo"));
+        assertEquals(Map.of("hasNextPage", true), report.get("pageInfo"));
+        assertEquals(42L, ((Map<?, ?>) GraphQLConfig.withTotalCount(Map.of("rows", java.util.List.of()), 42L).get("pageInfo")).get("totalCount"));
+    }
+
+    @Test
+    void pageSize_RejectsEmptyPagesAndCapsLargeOnes() {
+        ReflectionTestUtils.setField(graphQLConfig, "maxPageSize", 1000);
+
+        assertNull(graphQLConfig.pageSize(null, null));
+        assertEquals(100, graphQLConfig.pageSize(null, "cursor"));
+        assertEquals(25, graphQLConfig.pageSize(25, null));
+        assertEquals(1000, graphQLConfig.pageSize(Integer.MAX_VALUE, null));
+        assertEquals("INVALID_PAGE_SIZE", assertThrows(GraphQlApplicationException.class, () -> graphQLConfig.pageSize(0, null)).getErrorCode());
+        assertThrows(GraphQlApplicationException.class, () -> graphQLConfig.pageSize(-5, "cursor"));
+    }
+
+    @Test
+    void reportTypes_AcceptsSingleTypeAndDistinctList() {
+        assertEquals(List.of("Antenna"), GraphQLConfig.reportTypes("Antenna"));
+        assertEquals(List.of("Antenna", "Battery"), GraphQLConfig.reportTypes(List.of("Antenna", "Battery", "Antenna")));
+        assertThrows(GraphQlApplicationException.class, () -> GraphQLConfig.reportTypes(List.of()));
+    }
+
+    private static DataFetcher<?> dataFetcher(GraphQLSchema schema, String type, String field) {
+        return schema.getCodeRegistry().getDataFetcher(FieldCoordinates.coordinates(type, field),
+                schema.getObjectType(type).getFieldDefinition(field));
+    }
 }
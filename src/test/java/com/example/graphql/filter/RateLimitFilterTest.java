@@ -1,8 +1,13 @@
 package com.example.graphql.filter;
 
 import java.io.PrintWriter;
+import java.util.Set;
 
+import com.example.graphql.service.QueryCostCalculator;
+import com.example.graphql.service.QueryMetrics;
 import com.example.graphql.service.RateLimitingService;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,8 +18,10 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.github.bucket4j.ConsumptionProbe;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,6 +33,8 @@ class RateLimitFilterTest {
     @Mock
     private RateLimitingService rateLimitingService;
     @Mock
+    private QueryCostCalculator queryCostCalculator;
+    @Mock
     private HttpServletRequest request;
     @Mock
     private HttpServletResponse response;
@@ -36,11 +45,12 @@ class RateLimitFilterTest {
     @Mock
     private ConsumptionProbe probe;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
     private RateLimitFilter rateLimitFilter;
 
     @BeforeEach
     void setUp() {
-        rateLimitFilter = new RateLimitFilter(rateLimitingService);
+        rateLimitFilter = new RateLimitFilter(rateLimitingService, queryCostCalculator, new QueryMetrics(meterRegistry));
     }
 
     @Test
@@ -85,18 +95,67 @@ class RateLimitFilterTest {
         verify(response).setStatus(429);
         verify(response).setHeader("X-Rate-Limit-Retry-After-Seconds", "3");
         verify(filterChain, never()).doFilter(request, response);
+        assertEquals(1, meterRegistry.get("graphql.rate-limit.rejections").tag("reason", "admission").counter().count());
+    }
+
+    @Test
+    void doFilter_ExportRequest_ChargesExportCost() throws Exception {
+        when(request.getRequestURI()).thenReturn("/api/v1/reports/Antenna/export");
+        when(request.getRemoteAddr()).thenReturn("127.0.0.1");
+        when(rateLimitingService.resolveBucket("127.0.0.1")).thenReturn(bucket);
+        when(rateLimitingService.getCapacity()).thenReturn(100L);
+        when(queryCostCalculator.exportCost()).thenReturn(60);
+        when(bucket.tryConsumeAndReturnRemaining(60)).thenReturn(probe);
+        when(probe.isConsumed()).thenReturn(true);
+        when(probe.getRemainingTokens()).thenReturn(40L);
+
+        rateLimitFilter.doFilter(request, response, filterChain);
+
+        verify(response).setHeader("X-Rate-Limit-Remaining", "40");
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void doFilter_ExportRequest_BucketCannotPay_ShouldReturn429() throws Exception {
+        when(request.getRequestURI()).thenReturn("/api/v1/reports/Antenna/export");
+        when(request.getRemoteAddr()).thenReturn("127.0.0.1");
+        when(rateLimitingService.resolveBucket("127.0.0.1")).thenReturn(bucket);
+        when(rateLimitingService.getCapacity()).thenReturn(20L);
+        when(queryCostCalculator.exportCost()).thenReturn(60);
+        when(bucket.tryConsumeAndReturnRemaining(20)).thenReturn(probe);
+        when(probe.isConsumed()).thenReturn(false);
+        when(probe.getNanosToWaitForRefill()).thenReturn(45000000000L);
+        when(response.getWriter()).thenReturn(mock(PrintWriter.class));
+
+        rateLimitFilter.doFilter(request, response, filterChain);
+
+        verify(response).setStatus(429);
+        verify(response).setHeader("X-Rate-Limit-Retry-After-Seconds", "45");
+        verify(filterChain, never()).doFilter(request, response);
+        assertEquals(1, meterRegistry.get("graphql.rate-limit.rejections").tag("reason", "cost").counter().count());
     }
 
     @Test
-    void doFilter_UsesXForwardedFor_WhenPresent() throws Exception {
+    void doFilter_UsesXForwardedFor_FromTrustedProxy() throws Exception {
+        ReflectionTestUtils.setField(rateLimitFilter, "trustedProxies", Set.of("10.0.0.254", "10.0.0.1"));
         when(request.getRequestURI()).thenReturn("/api/v1/graphql");
-        when(request.getHeader("X-Forwarded-For")).thenReturn("10.0.0.1, 192.168.1.1");
-        when(rateLimitingService.resolveBucket("10.0.0.1")).thenReturn(bucket);
+        when(request.getRemoteAddr()).thenReturn("10.0.0.254");
+        when(request.getHeader("X-Forwarded-For")).thenReturn("198.51.100.9, 203.0.113.7, 10.0.0.1");
+        when(rateLimitingService.resolveBucket("203.0.113.7")).thenReturn(bucket);
         when(bucket.tryConsumeAndReturnRemaining(1)).thenReturn(probe);
         when(probe.isConsumed()).thenReturn(true);
 
         rateLimitFilter.doFilter(request, response, filterChain);
 
-        verify(rateLimitingService).resolveBucket("10.0.0.1");
+        verify(rateLimitingService).resolveBucket("203.0.113.7");
+    }
+
+    @Test
+    void getClientIP_IgnoresXForwardedForFromUntrustedPeer() {
+        ReflectionTestUtils.setField(rateLimitFilter, "trustedProxies", Set.of("10.0.0.254"));
+        when(request.getRemoteAddr()).thenReturn("198.51.100.9");
+        when(request.getHeader("X-Forwarded-For")).thenReturn("10.0.0.1");
+
+        assertEquals("198.51.100.9", rateLimitFilter.getClientIP(request));
     }
 }
@@ -0,0 +1,101 @@
+package com.example.graphql.instrumentation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import graphql.parser.Parser;
+import graphql.validation.ValidationError;
+import graphql.validation.ValidationErrorType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PreparsedDocumentCacheTest {
+
+    private static final String QUERY = "{ customFullReport(type: \"Antenna\") { rows } }";
+
+    private final PreparsedDocumentCache cache = new PreparsedDocumentCache(10, 10);
+    private final AtomicInteger parses = new AtomicInteger();
+    private final Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate = input -> {
+        parses.incrementAndGet();
+        return new PreparsedDocumentEntry(Parser.parse(input.getQuery()));
+    };
+
+    @Test
+    void getDocumentAsync_ParsesPlainDocumentOnce() {
+        PreparsedDocumentEntry first = cache.getDocumentAsync(ExecutionInput.newExecutionInput(QUERY).build(), parseAndValidate).join();
+        PreparsedDocumentEntry second = cache.getDocumentAsync(ExecutionInput.newExecutionInput(QUERY).build(), parseAndValidate).join();
+
+        assertSame(first, second);
+        assertEquals(1, parses.get());
+    }
+
+    @Test
+    void getDocumentAsync_DoesNotCacheInvalidDocuments() {
+        Function<ExecutionInput, PreparsedDocumentEntry> invalid = input -> {
+            parses.incrementAndGet();
+            return new PreparsedDocumentEntry(List.of(ValidationError.newValidationError()
+                    .validationErrorType(ValidationErrorType.FieldUndefined).description("unknown field").build()));
+        };
+
+        cache.getDocumentAsync(ExecutionInput.newExecutionInput(QUERY).build(), invalid).join();
+        cache.getDocumentAsync(ExecutionInput.newExecutionInput(QUERY).build(), invalid).join();
+
+        assertEquals(2, parses.get());
+    }
+
+    @Test
+    void getDocumentAsync_ServesPersistedQueryByHashAfterRegistration() throws Exception {
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(QUERY.getBytes(StandardCharsets.UTF_8)));
+        Map<String, Object> extensions = Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash));
+
+        PreparsedDocumentEntry unknown = cache.getDocumentAsync(ExecutionInput.newExecutionInput(PersistedQuerySupport.PERSISTED_QUERY_MARKER)
+                .extensions(extensions).build(), parseAndValidate).join();
+        assertTrue(unknown.hasErrors());
+        assertEquals("PersistedQueryNotFound", unknown.getErrors().get(0).getMessage());
+
+        PreparsedDocumentEntry registered = cache.getDocumentAsync(ExecutionInput.newExecutionInput(QUERY)
+                .extensions(extensions).build(), parseAndValidate).join();
+        PreparsedDocumentEntry byHash = cache.getDocumentAsync(ExecutionInput.newExecutionInput(PersistedQuerySupport.PERSISTED_QUERY_MARKER)
+                .extensions(extensions).build(), parseAndValidate).join();
+
+        assertFalse(registered.hasErrors());
+        assertSame(registered, byHash);
+        assertEquals(1, parses.get());
+    }
+
+    @Test
+    void getDocumentAsync_RejectsDocumentNotMatchingHash() {
+        Map<String, Object> extensions = Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", "0".repeat(64)));
+
+        PreparsedDocumentEntry entry = cache.getDocumentAsync(ExecutionInput.newExecutionInput(QUERY)
+                .extensions(extensions).build(), parseAndValidate).join();
+
+        assertTrue(entry.hasErrors());
+        assertEquals(0, parses.get());
+    }
+
+    @Test
+    void bindTo_PublishesHitRatios() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.getDocumentAsync(ExecutionInput.newExecutionInput(QUERY).build(), parseAndValidate).join();
+        cache.getDocumentAsync(ExecutionInput.newExecutionInput(QUERY).build(), parseAndValidate).join();
+
+        assertEquals(0.5, registry.get("cache.hit.ratio").tag("cache", "preparsedDocuments").gauge().value());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncQueryExecutorTest {
+
+    private final AsyncQueryExecutor executor = new AsyncQueryExecutor(1, Duration.ofMillis(50));
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void submit_ReturnsTaskResultAndReleasesPermit() {
+        assertEquals("done", executor.submit(() -> "done").join());
+        assertEquals(1, executor.availablePermits());
+    }
+
+    @Test
+    void submit_FailsWhenNoPermitBecomesAvailable() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> blocking = executor.submit(() -> {
+            release.await();
+            return null;
+        });
+        while (executor.availablePermits() > 0) {
+            Thread.onSpinWait();
+        }
+
+        CompletionException e = assertThrows(CompletionException.class, () -> executor.submit(() -> "late").join());
+        assertInstanceOf(GraphQlApplicationException.class, e.getCause());
+
+        release.countDown();
+        blocking.join();
+    }
+
+    @Test
+    void coordinate_RunsOffCallerWithoutTakingPermit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> blocking = executor.submit(() -> {
+            release.await();
+            return null;
+        });
+        while (executor.availablePermits() > 0) {
+            Thread.onSpinWait();
+        }
+
+        Thread caller = Thread.currentThread();
+        assertTrue(executor.coordinate(() -> Thread.currentThread() != caller && Thread.currentThread().isVirtual()).join());
+
+        release.countDown();
+        blocking.join();
+        assertEquals(1, executor.availablePermits());
+    }
+}
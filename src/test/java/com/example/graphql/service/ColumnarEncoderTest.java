@@ -0,0 +1,66 @@
+package com.example.graphql.service;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.internal.InternalRecord;
+
+class ColumnarEncoderTest {
+
+    private final RecordProjector projector = new RecordProjector(List.of("id", "object_category", "resource_status"));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void encode_SendsColumnsOnceAndRowsAsArrays() {
+        List<Map<String, Object>> rows = List.of(row("ANT-1", "Antenna", 1L), row("ANT-2", "Antenna", 2L));
+
+        Map<String, Object> columnar = ColumnarEncoder.encode(rows, false);
+
+        assertEquals(List.of("id", "object_category", "resource_status"), columnar.get("columns"));
+        List<Object[]> data = (List<Object[]>) columnar.get("rows");
+        assertArrayEquals(new Object[] {"ANT-1", "Antenna", 1L}, data.get(0));
+        assertArrayEquals(new Object[] {"ANT-2", "Antenna", 2L}, data.get(1));
+        assertTrue(((Map<String, Object>) columnar.get("dictionaries")).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void encode_DictionaryEncodesLowCardinalityColumnsOnly() {
+        List<Map<String, Object>> rows = List.of(
+                row("ANT-1", "Antenna", 1L), row("ANT-2", "Antenna", 2L),
+                row("ANT-3", "Antenna", 1L), row("ANT-4", "Antenna", 1L));
+
+        Map<String, Object> columnar = ColumnarEncoder.encode(rows, true);
+
+        Map<String, List<Object>> dictionaries = (Map<String, List<Object>>) columnar.get("dictionaries");
+        assertEquals(Map.of("object_category", List.of("Antenna"), "resource_status", List.of(1L, 2L)), dictionaries);
+        List<Object[]> data = (List<Object[]>) columnar.get("rows");
+        assertArrayEquals(new Object[] {"ANT-2", 0, 1}, data.get(1));
+        // source rows are not modified
+        assertEquals(2L, rows.get(1).get("resource_status"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void encode_HandlesPlainMapsAndEmptyReports() {
+        Map<String, Object> columnar = ColumnarEncoder.encode(List.of(Map.of("id", "ANT-1")), true);
+        assertArrayEquals(new Object[] {"ANT-1"}, ((List<Object[]>) columnar.get("rows")).get(0));
+
+        assertEquals(List.of(), ColumnarEncoder.encode(List.of(), true).get("columns"));
+    }
+
+    private Map<String, Object> row(Object... values) {
+        Value[] converted = new Value[values.length];
+        for (int i = 0; i < values.length; i++) {
+            converted[i] = Values.value(values[i]);
+        }
+        return projector.project(new InternalRecord(List.of("id", "object_category", "resource_status"), converted));
+    }
+}
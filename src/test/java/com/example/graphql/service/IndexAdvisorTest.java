@@ -0,0 +1,104 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import org.mockito.Mock;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.internal.InternalRecord;
+
+@ExtendWith(MockitoExtension.class)
+class IndexAdvisorTest {
+
+    private static final QueryTemplate TEMPLATE = QueryTemplate.compile("getAntennaReport", Map.of(
+            "cypher", "MATCH (obj:Antenna) {{WHERE_CLAUSE_1}} OPTIONAL MATCH (obj)--(nodeCode) RETURN obj.id as id",
+            "fieldMapping1", Map.of("element_id", "obj.name", "serial_number", "obj.serialNumber", "site_code", "nodeCode.name")));
+
+    @Mock
+    private ReadTransactions readTransactions;
+
+    private IndexAdvisor indexAdvisor;
+
+    @BeforeEach
+    void setUp() {
+        indexAdvisor = new IndexAdvisor(readTransactions, Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        indexAdvisor.shutdown();
+    }
+
+    @Test
+    void isIndexed_MatchesOperatorToIndexType() {
+        loadIndexes(index("RANGE", "Antenna", "name"), index("TEXT", "Antenna", "barcode"), index("RANGE", "Antenna", "name", "barcode"));
+
+        assertTrue(indexAdvisor.isIndexed(TEMPLATE, "obj.name", "EQ"));
+        assertFalse(indexAdvisor.isIndexed(TEMPLATE, "obj.name", "CONTAINS"));
+        assertFalse(indexAdvisor.isIndexed(TEMPLATE, "obj.name", "NEQ"));
+        assertTrue(indexAdvisor.isIndexed(TEMPLATE, "obj.barcode", "CONTAINS"));
+        assertTrue(indexAdvisor.isIndexed(TEMPLATE, "obj.barcode", "IN"));
+        assertFalse(indexAdvisor.isIndexed(TEMPLATE, "obj.serialNumber", "EQ"));
+        assertFalse(indexAdvisor.isIndexed(TEMPLATE, "nodeCode.name", "EQ"));
+    }
+
+    @Test
+    void advise_ListsUnindexedFiltersByObservedLatency() {
+        loadIndexes(index("RANGE", "Antenna", "name"));
+
+        indexAdvisor.recordFilters(TEMPLATE, Map.of("filters", List.of(filter("serial_number", "EQ"), filter("element_id", "EQ"))), 4_000_000);
+        indexAdvisor.recordFilters(TEMPLATE, Map.of("filters", List.of(filter("serial_number", "EQ"))), 2_000_000);
+        indexAdvisor.recordFilters(TEMPLATE, Map.of("filters", List.of(filter("element_id", "CONTAINS"), filter("site_code", "EQ"))), 1_000_000);
+
+        List<IndexAdvisor.IndexAdvice> advice = indexAdvisor.advise(10);
+
+        assertEquals(2, advice.size());
+        IndexAdvisor.IndexAdvice serialNumber = advice.get(0);
+        assertEquals("serial_number", serialNumber.field());
+        assertEquals(2, serialNumber.unindexedCount());
+        assertEquals(3.0, serialNumber.meanLatencyMs());
+        assertEquals(4.0, serialNumber.maxLatencyMs());
+        assertEquals("CREATE INDEX IF NOT EXISTS FOR (n:Antenna) ON (n.serialNumber)", serialNumber.suggestedIndex());
+        assertEquals("CREATE TEXT INDEX IF NOT EXISTS FOR (n:Antenna) ON (n.name)", advice.get(1).suggestedIndex());
+    }
+
+    @Test
+    void reload_KeepsPreviousIndexesWhenReadFails() {
+        loadIndexes(index("RANGE", "Antenna", "name"));
+        when(readTransactions.read(eq("indexes"), isNull(), any())).thenThrow(new RuntimeException("Neo4j unavailable"));
+
+        assertFalse(indexAdvisor.reload());
+        assertTrue(indexAdvisor.isIndexed(TEMPLATE, "obj.name", "EQ"));
+    }
+
+    private void loadIndexes(Record... indexes) {
+        when(readTransactions.read(eq("indexes"), isNull(), any())).thenReturn(List.of(indexes));
+        assertTrue(indexAdvisor.reload());
+    }
+
+    private static Record index(String type, String label, String... properties) {
+        return new InternalRecord(List.of("type", "labelsOrTypes", "properties"),
+                new Value[] {Values.value(type), Values.value(List.of(label)), Values.value(List.of(properties))});
+    }
+
+    private static Map<String, Object> filter(String field, String op) {
+        return Map.of("field", field, "op", op, "values", Collections.singletonList("x"));
+    }
+}
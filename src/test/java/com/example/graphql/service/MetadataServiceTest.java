@@ -0,0 +1,69 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+
+@ExtendWith(MockitoExtension.class)
+class MetadataServiceTest {
+
+    @Mock
+    private ReadTransactions readTransactions;
+    @Mock
+    private Record record;
+    @Mock
+    private Value value;
+
+    private MetadataService metadataService;
+
+    @BeforeEach
+    void setUp() {
+        metadataService = new MetadataService(readTransactions, Duration.ofMinutes(10), Duration.ofSeconds(1), Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        metadataService.shutdown();
+    }
+
+    @Test
+    void reload_SwapsInNewSnapshot() {
+        when(readTransactions.read(eq("enumerations"), any(), any())).thenReturn(List.of(record));
+        when(record.get("result")).thenReturn(value);
+        when(value.asMap()).thenReturn(Map.of("resourceStatusEnumeration", Map.of("INSTALLED", 3L)));
+
+        assertTrue(metadataService.reload());
+
+        assertEquals(3L, metadataService.getEnumValue("resourceStatusEnumeration", "INSTALLED"));
+        assertNull(metadataService.getEnumValue("resourceStatusEnumeration", "UNKNOWN"));
+        assertEquals(1, metadataService.getEnumCount());
+    }
+
+    @Test
+    void reload_KeepsPreviousSnapshotOnFailure() {
+        when(readTransactions.read(anyString(), any(), any())).thenThrow(new RuntimeException("Neo4j unavailable"));
+
+        assertFalse(metadataService.reload());
+
+        assertEquals(0, metadataService.getEnumCount());
+        assertNull(metadataService.getLastLoadedAt());
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MultiTypeReportServiceTest {
+
+    @Mock
+    private QueryService queryService;
+
+    private MultiTypeReportService reportService;
+
+    @BeforeEach
+    void setUp() {
+        reportService = new MultiTypeReportService(queryService, new AsyncQueryExecutor(4, Duration.ofSeconds(5)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getReport_MergesSortedTypesAndAppliesGlobalWindow() {
+        stubTemplates();
+        answerType("getAntennaReport", parameters -> Objects.equals(parameters.get("limit"), 4) && Objects.equals(parameters.get("offset"), 0),
+                false, row(1L, "A1"), row(4L, "C1"), row(5L, "E1"));
+        answerType("getBatteryReport", parameters -> Objects.equals(parameters.get("limit"), 4) && Objects.equals(parameters.get("offset"), 0),
+                false, row(2L, "B1"), row(3L, "D1"));
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("sort", List.of(Map.of("field", "site_code", "direction", "ASC")));
+        parameters.put("offset", 1);
+        parameters.put("limit", 3);
+
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) reportService.getReport(List.of("Antenna", "Battery"), parameters).get("rows");
+
+        assertEquals(List.of("B1", "C1", "D1"), rows.stream().map(row -> row.get("site_code")).toList());
+    }
+
+    @Test
+    void getReport_RejectsSortFieldMissingFromAType() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("sort", List.of(Map.of("field", "element_id", "direction", "ASC")));
+        when(queryService.getTemplate("getCardReport")).thenReturn(template("getCardReport", Map.of("site_code", "site.name")));
+        when(queryService.getTemplate("getAntennaReport"))
+                .thenReturn(template("getAntennaReport", Map.of("site_code", "nodeCode.name", "element_id", "obj.name")));
+
+        GraphQlApplicationException exception = assertThrows(GraphQlApplicationException.class,
+                () -> reportService.getReport(List.of("Antenna", "Card"), parameters));
+        assertEquals("INVALID_SORT", exception.getErrorCode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getReportPage_ResumesEveryTypeAfterItsLastKey() {
+        stubTemplates();
+        answerType("getAntennaReport", parameters -> Objects.equals(parameters.get("keysetAfter"), 1L), true, row(4L, "C1"), row(5L, "E1"));
+        answerType("getBatteryReport", parameters -> Objects.equals(parameters.get("keysetAfter"), 2L), true, row(3L, "D1"));
+
+        String after = ReportCursor.encodeAll(Map.of("Antenna", 1L, "Battery", 2L));
+        Map<String, Object> page = reportService.getReportPage(List.of("Antenna", "Battery"), new HashMap<>(), 2, after);
+
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) page.get("rows");
+        Map<String, Object> pageInfo = (Map<String, Object>) page.get("pageInfo");
+        assertEquals(List.of(3L, 4L), rows.stream().map(row -> row.get("id")).toList());
+        assertEquals(true, pageInfo.get("hasNextPage"));
+        assertEquals(Map.of("Antenna", 4L, "Battery", 3L), ReportCursor.decodeAll((String) pageInfo.get("endCursor")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getReportPage_EndsPagesOnWholeKeys() {
+        stubTemplates();
+        answerType("getAntennaReport", parameters -> Objects.equals(parameters.get("limit"), 4), true,
+                row(1L, "A1"), row(2L, "A2"), row(2L, "A2"), row(2L, "A2"));
+        answerType("getBatteryReport", parameters -> Objects.equals(parameters.get("limit"), 4), true, row(3L, "B3"));
+
+        Map<String, Object> page = reportService.getReportPage(List.of("Antenna", "Battery"), new HashMap<>(), 3, null);
+
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) page.get("rows");
+        Map<String, Object> pageInfo = (Map<String, Object>) page.get("pageInfo");
+        assertEquals(List.of(1L), rows.stream().map(row -> row.get("id")).toList());
+        assertEquals(true, pageInfo.get("hasNextPage"));
+        assertEquals(Map.of("Antenna", 1L), ReportCursor.decodeAll((String) pageInfo.get("endCursor")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getReportPage_ReturnsKeyLargerThanPageWhole() {
+        stubTemplates();
+        answerType("getAntennaReport", parameters -> parameters.get("keysetIn") == null && parameters.get("keysetAfter") == null, true,
+                row(7L, "A7"), row(7L, "A7"), row(7L, "A7"));
+        answerType("getAntennaReport", parameters -> List.of(7L).equals(parameters.get("keysetIn")), true,
+                row(7L, "A7"), row(7L, "A7"), row(7L, "A7"), row(7L, "A7"));
+        answerType("getAntennaReport", parameters -> Objects.equals(parameters.get("keysetAfter"), 7L), true);
+        answerType("getBatteryReport", parameters -> parameters.get("keysetAfter") == null, true, row(8L, "B8"));
+
+        Map<String, Object> page = reportService.getReportPage(List.of("Antenna", "Battery"), new HashMap<>(), 2, null);
+
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) page.get("rows");
+        Map<String, Object> pageInfo = (Map<String, Object>) page.get("pageInfo");
+        assertEquals(List.of(7L, 7L, 7L, 7L), rows.stream().map(row -> row.get("id")).toList());
+        assertEquals(true, pageInfo.get("hasNextPage"));
+        assertEquals(Map.of("Antenna", 7L), ReportCursor.decodeAll((String) pageInfo.get("endCursor")));
+    }
+
+    @Test
+    void compareValues_OrdersNullsLast() {
+        assertEquals(-1, Integer.signum(MultiTypeReportService.compareValues("A", null)));
+        assertEquals(-1, Integer.signum(MultiTypeReportService.compareValues(2L, 10L)));
+        assertEquals(1, Integer.signum(MultiTypeReportService.compareValues(2.5, 2L)));
+    }
+
+    private void stubTemplates() {
+        when(queryService.getTemplate("getAntennaReport")).thenReturn(template("getAntennaReport", Map.of("site_code", "nodeCode.name")));
+        when(queryService.getTemplate("getBatteryReport")).thenReturn(template("getBatteryReport", Map.of("site_code", "site.name")));
+    }
+
+    @SafeVarargs
+    private void answerType(String queryName, Predicate<Map<String, Object>> parameters, boolean keyset, Map<String, Object>... rows) {
+        doAnswer(invocation -> {
+            Predicate<Map<String, Object>> consumer = invocation.getArgument(3);
+            for (Map<String, Object> row : rows) {
+                if (!consumer.test(row)) {
+                    break;
+                }
+            }
+            return null;
+        }).when(queryService).forEachReportRow(eq(queryName), argThat(parameters::test), eq(keyset), any());
+    }
+
+    private static QueryTemplate template(String name, Map<String, Object> fieldMapping) {
+        return QueryTemplate.compile(name, Map.of("cypher", "MATCH (obj) {{WHERE_CLAUSE_1}} {{SKIP_LIMIT}} RETURN obj.id as id",
+                "fieldMapping1", fieldMapping,
+                "keyset", Map.of("dbField", "obj.id", "column", "id")));
+    }
+
+    private static Map<String, Object> row(Long id, String siteCode) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("site_code", siteCode);
+        return row;
+    }
+}
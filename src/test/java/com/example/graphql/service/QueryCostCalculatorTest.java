@@ -0,0 +1,112 @@
+package com.example.graphql.service;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.lenient;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import graphql.language.Document;
+import graphql.language.OperationDefinition;
+import graphql.parser.Parser;
+import graphql.scalars.ExtendedScalars;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+
+@ExtendWith(MockitoExtension.class)
+class QueryCostCalculatorTest {
+
+    @Mock
+    private QueryService queryService;
+
+    private QueryCostCalculator calculator;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(queryService.getQueryNames()).thenReturn(Set.of("getAntennaDetails"));
+        calculator = new QueryCostCalculator(queryService);
+        ReflectionTestUtils.setField(calculator, "reportBaseCost", 5);
+        ReflectionTestUtils.setField(calculator, "rowsPerToken", 100);
+        ReflectionTestUtils.setField(calculator, "namedQueryCost", 2);
+        ReflectionTestUtils.setField(calculator, "relationshipFieldCost", 1);
+        ReflectionTestUtils.setField(calculator, "exportPartitions", 4);
+        ReflectionTestUtils.setField(calculator, "defaultListSize", 10);
+        ReflectionTestUtils.setField(calculator, "defaultReportRows", 1000);
+    }
+
+    @Test
+    void calculate_ChargesReportsByRequestedRows() {
+        assertEquals(5 + 50, cost("{ customFullReport(type: \"Antenna\", limit: 5000) { rows } }", Map.of()));
+        assertEquals(5 + 3, cost("query($n: Int) { customFullReport(type: \"Antenna\", first: $n) { rows } }", Map.of("n", 250)));
+        assertEquals(2 * (5 + 50), cost("{ customFullReport(type: [\"Antenna\", \"Battery\"], limit: 5000) { rows } }", Map.of()));
+    }
+
+    @Test
+    void calculate_SaturatesInsteadOfOverflowing() {
+        String query = "query($n: Int) { a: customFullReport(type: [\"Antenna\", \"Battery\", \"Card\"], limit: $n) { rows }"
+                + " b: customFullReport(type: \"Antenna\", limit: $n) { rows } }";
+
+        assertEquals(3 * (5 + 21_474_837L) + (5 + 21_474_837L), cost(query, Map.of("n", Integer.MAX_VALUE)));
+
+        ReflectionTestUtils.setField(calculator, "rowsPerToken", 1);
+        assertEquals(Long.MAX_VALUE, cost(query, Map.of("n", Long.MAX_VALUE)));
+    }
+
+    @Test
+    void exportCost_ChargesEveryPartitionAsDefaultReport() {
+        assertEquals(4 * (5 + 10), calculator.exportCost());
+    }
+
+    @Test
+    void calculate_SumsAliasesAndRelationshipSelections() {
+        String query = """
+            {
+              a: vertical(id: "1") { id }
+              b: suite(id: "2") { id suite_has_rack_Rack { id rack_has_device_Device { id } } }
+              getAntennaDetails
+            }
+            """;
+
+        assertEquals(1 + (1 + 2) + 2, cost(query, Map.of()));
+    }
+
+    @Test
+    void calculateComplexity_MultipliesNestedListsAndTracksDepth() {
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse("""
+            scalar JSON
+            type Query { suite(id: ID): Suite customFullReport(type: String!, limit: Int): Report getAntennaDetails: JSON }
+            type Suite { id: ID racks(limit: Int): [Rack] }
+            type Rack { id: ID devices: [Device] }
+            type Device { id: ID }
+            type Report { rows: [JSON] }
+            """), RuntimeWiring.newRuntimeWiring().scalar(ExtendedScalars.Json).build());
+
+        QueryCostCalculator.QueryComplexity complexity = complexity(schema,
+                "{ suite(id: \"1\") { id racks(limit: 5) { id devices { id } } } }");
+        assertEquals(1 + 5 * (1 + 10), complexity.complexity());
+        assertEquals(4, complexity.depth());
+
+        assertEquals(5000, complexity(schema, "{ customFullReport(type: \"Antenna\", limit: 5000) { rows } }").complexity());
+        assertEquals(1000, complexity(schema, "{ getAntennaDetails __typename }").complexity());
+    }
+
+    private QueryCostCalculator.QueryComplexity complexity(GraphQLSchema schema, String query) {
+        OperationDefinition operation = Parser.parse(query).getFirstDefinitionOfType(OperationDefinition.class).orElseThrow();
+        return calculator.calculateComplexity(schema, operation, Map.of(), Map.of());
+    }
+
+    private long cost(String query, Map<String, Object> variables) {
+        Document document = Parser.parse(query);
+        OperationDefinition operation = document.getFirstDefinitionOfType(OperationDefinition.class).orElseThrow();
+        return calculator.calculate(operation, Map.of(), variables);
+    }
+}
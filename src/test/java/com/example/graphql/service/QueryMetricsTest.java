@@ -0,0 +1,41 @@
+package com.example.graphql.service;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class QueryMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final QueryMetrics queryMetrics = new QueryMetrics(registry);
+
+    @Test
+    void recordStage_TagsTimerByQueryAndStage() {
+        queryMetrics.recordStage("getAntennaReport", QueryMetrics.Stage.EXECUTE, TimeUnit.MILLISECONDS.toNanos(20));
+        queryMetrics.recordStage("getAntennaReport", QueryMetrics.Stage.EXECUTE, TimeUnit.MILLISECONDS.toNanos(30));
+        String value = queryMetrics.time("getAntennaReport", QueryMetrics.Stage.BUILD, () -> "cypher");
+
+        Timer execute = registry.get("graphql.query.stage").tag("query", "getAntennaReport").tag("stage", "execute").timer();
+        assertEquals(2, execute.count());
+        assertEquals(50, execute.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1, registry.get("graphql.query.stage").tag("stage", "build").timer().count());
+        assertEquals("cypher", value);
+    }
+
+    @Test
+    void recordRows_RecordsDistributionPerQuery() {
+        queryMetrics.recordRows("getAntennaReport", 10);
+        queryMetrics.recordRows("getAntennaReport", 30);
+        queryMetrics.recordRows("antennas", 5);
+
+        DistributionSummary rows = registry.get("graphql.query.rows").tag("query", "getAntennaReport").summary();
+        assertEquals(2, rows.count());
+        assertEquals(40, rows.totalAmount(), 0.001);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.graphql.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+class QueryResultCacheTest {
+
+    private final AsyncQueryExecutor asyncQueryExecutor = new AsyncQueryExecutor(2, Duration.ofSeconds(5));
+
+    @Test
+    void get_ServesFreshResultWithoutReloading() {
+        QueryResultCache cache = memoryOnly();
+        QueryTemplate.CachePolicy policy = new QueryTemplate.CachePolicy(Duration.ofMinutes(1), Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+
+        Object first = cache.get("key", policy, () -> List.of(Map.of("n", loads.incrementAndGet())));
+        Object second = cache.get("key", policy, () -> List.of(Map.of("n", loads.incrementAndGet())));
+
+        assertEquals(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_ServesStaleResultAndRefreshesInBackground() throws Exception {
+        QueryResultCache cache = memoryOnly();
+        QueryTemplate.CachePolicy policy = new QueryTemplate.CachePolicy(Duration.ZERO, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("key", policy, loads::incrementAndGet);
+        Object stale = cache.get("key", policy, loads::incrementAndGet);
+
+        assertEquals(1, stale);
+        for (int i = 0; i < 100 && loads.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_RetriesBackgroundRefreshRejectedForLackOfPermit() throws Exception {
+        AsyncQueryExecutor busy = new AsyncQueryExecutor(1, Duration.ofMillis(20));
+        QueryResultCache cache = new QueryResultCache(busy, 1000, false, null, DataSize.ofMegabytes(256), Duration.ofHours(1), Duration.ofSeconds(30));
+        QueryTemplate.CachePolicy policy = new QueryTemplate.CachePolicy(Duration.ZERO, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("key", policy, loads::incrementAndGet);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> holder = busy.submit(() -> {
+            release.await();
+            return null;
+        });
+        while (busy.availablePermits() > 0) {
+            Thread.onSpinWait();
+        }
+        cache.get("key", policy, loads::incrementAndGet);
+        // the rejected refresh frees its key once its permit wait has timed out
+        Thread.sleep(100);
+        release.countDown();
+        holder.join();
+
+        cache.get("key", policy, loads::incrementAndGet);
+        for (int i = 0; i < 100 && loads.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, loads.get());
+        busy.shutdown();
+    }
+
+    @Test
+    void get_LoadsWarmResultFromDiskTier(@TempDir Path directory) throws Exception {
+        QueryTemplate.CachePolicy policy = new QueryTemplate.CachePolicy(Duration.ofMinutes(1), Duration.ZERO);
+        List<String> rows = new ArrayList<>(List.of("a", "b", "c"));
+        // report pages are subList views, which are not serializable themselves
+        onDisk(directory, DataSize.ofMegabytes(256))
+                .get("key", policy, () -> new HashMap<>(Map.of("rows", rows.subList(0, 2))));
+        awaitFiles(directory, 1);
+
+        QueryResultCache restarted = onDisk(directory, DataSize.ofMegabytes(256));
+        Object warm = restarted.get("key", policy, () -> Map.of("rows", List.of()));
+
+        assertEquals(Map.of("rows", List.of("a", "b")), warm);
+    }
+
+    @Test
+    void sweepDisk_DeletesOldestFilesBeyondMaxSize(@TempDir Path directory) throws Exception {
+        QueryResultCache cache = onDisk(directory, DataSize.ofBytes(1));
+        QueryTemplate.CachePolicy policy = new QueryTemplate.CachePolicy(Duration.ofMinutes(1), Duration.ZERO);
+        cache.get("key", policy, () -> List.of("a"));
+        awaitFiles(directory, 1);
+
+        cache.sweepDisk();
+
+        assertEquals(0, fileCount(directory));
+        cache.shutdown();
+    }
+
+    @Test
+    void cacheKey_IgnoresParameterOrder() {
+        Map<String, Object> a = new java.util.LinkedHashMap<>();
+        a.put("limit", 10);
+        a.put("type", "Antenna");
+        Map<String, Object> b = new java.util.LinkedHashMap<>();
+        b.put("type", "Antenna");
+        b.put("limit", 10);
+
+        assertEquals(QueryResultCache.cacheKey("q", a), QueryResultCache.cacheKey("q", b));
+    }
+
+    private QueryResultCache memoryOnly() {
+        return new QueryResultCache(asyncQueryExecutor, 1000, false, null, DataSize.ofMegabytes(256), Duration.ofHours(1), Duration.ofSeconds(30));
+    }
+
+    private QueryResultCache onDisk(Path directory, DataSize maxSize) {
+        return new QueryResultCache(asyncQueryExecutor, 1000, true, directory.toString(), maxSize, Duration.ofHours(1), Duration.ofSeconds(30));
+    }
+
+    private static void awaitFiles(Path directory, long count) throws Exception {
+        for (int i = 0; i < 100 && fileCount(directory) < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, fileCount(directory));
+    }
+
+    private static long fileCount(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".bin")).count();
+        }
+    }
+}
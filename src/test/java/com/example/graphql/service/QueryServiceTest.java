@@ -1,35 +1,60 @@
 package com.example.graphql.service;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.driver.AccessMode;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.TransactionCallback;
+import org.neo4j.driver.TransactionConfig;
+import org.neo4j.driver.TransactionContext;
 import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.internal.InternalRecord;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.telstra.tni.commonutils.neo4j.DatabaseDriver;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 class QueryServiceTest {
 
@@ -38,29 +63,37 @@ class QueryServiceTest {
     @Mock
     private Session session;
     @Mock
+    private TransactionContext tx;
+    @Mock
     private Result result;
+    @Mock
+    private MetadataService metadataService;
+    @Mock
+    private QueryResultCache queryResultCache;
+    @Mock
+    private IndexAdvisor indexAdvisor;
 
+    private final AsyncQueryExecutor asyncQueryExecutor = new AsyncQueryExecutor(2, Duration.ofSeconds(5));
     private QueryService queryService;
 
     @BeforeEach
     void setUp() {
-        queryService = new QueryService(databaseDriver);
+        queryService = new QueryService(new ReadTransactions(databaseDriver, AccessMode.READ, Duration.ofSeconds(60), Duration.ofMinutes(30), "test"), metadataService, queryResultCache, new QueryMetrics(new SimpleMeterRegistry()),
+                indexAdvisor, asyncQueryExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncQueryExecutor.shutdown();
     }
 
     @Test
     @SuppressWarnings("unchecked")
     void getQueryResult_ExecutesCypherAndConvertsRecords() {
-        when(databaseDriver.sessionFor()).thenReturn(session);
-        when(session.run(anyString(), any(Map.class))).thenReturn(result);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
 
-        // Mock Record and Value
-        Record record = mock(Record.class);
-        Value value = mock(Value.class);
-        when(record.keys()).thenReturn(Collections.singletonList("key"));
-        when(record.get("key")).thenReturn(value);
-        when(value.asObject()).thenReturn("value");
-        // Ensure default type check returns false so it falls back to asObject
-        when(value.hasType(any())).thenReturn(false);
+        Record record = new InternalRecord(List.of("key"), new Value[] {Values.value("value")});
 
         // Mock Result iterator
         when(result.list(any(Function.class))).thenAnswer(invocation -> {
@@ -75,14 +108,14 @@ class QueryServiceTest {
         Map<String, Object> row = (Map<String, Object>) actual.get(0);
         assertEquals("value", row.get("key"));
         
-        verify(session).run(anyString(), any(Map.class));
+        verify(tx).run(anyString(), any(Map.class));
     }
     
     @Test
     @SuppressWarnings("unchecked")
     void getQueryResult_HandlesFilters_MissingFieldMapping() {
-        when(databaseDriver.sessionFor()).thenReturn(session);
-        when(session.run(anyString(), any(Map.class))).thenReturn(result);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
         when(result.list(any(Function.class))).thenReturn(Collections.emptyList());
 
         Map<String, Object> params = new HashMap<>();
@@ -95,14 +128,14 @@ class QueryServiceTest {
         // When field mapping is missing, buildWhereClause returns empty string
         // The query service replaces {{WHERE_CLAUSE_X}} with empty string in that case
         // So we expect the query to NOT contain "non_existent_field" logic, essentially it's just the base query without filters
-        verify(session).run(anyString(), any(Map.class));
+        verify(tx).run(anyString(), any(Map.class));
     }
 
     @Test
     @SuppressWarnings("unchecked")
     void getQueryResult_HandlesFilters_NullFilters() {
-        when(databaseDriver.sessionFor()).thenReturn(session);
-        when(session.run(anyString(), any(Map.class))).thenReturn(result);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
         when(result.list(any(Function.class))).thenReturn(Collections.emptyList());
 
         Map<String, Object> params = new HashMap<>();
@@ -110,14 +143,14 @@ class QueryServiceTest {
         
         queryService.getQueryResult("getAntennaReport", params);
         
-        verify(session).run(anyString(), any(Map.class));
+        verify(tx).run(anyString(), any(Map.class));
     }
 
     @Test
     @SuppressWarnings("unchecked")
     void getQueryResult_HandlesFilters_EmptyFilters() {
-        when(databaseDriver.sessionFor()).thenReturn(session);
-        when(session.run(anyString(), any(Map.class))).thenReturn(result);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
         when(result.list(any(Function.class))).thenReturn(Collections.emptyList());
 
         Map<String, Object> params = new HashMap<>();
@@ -125,14 +158,14 @@ class QueryServiceTest {
         
         queryService.getQueryResult("getAntennaReport", params);
         
-        verify(session).run(anyString(), any(Map.class));
+        verify(tx).run(anyString(), any(Map.class));
     }
     
     @Test
     @SuppressWarnings("unchecked")
     void getQueryResult_HandlesFilters_UnknownOp() {
-        when(databaseDriver.sessionFor()).thenReturn(session);
-        when(session.run(anyString(), any(Map.class))).thenReturn(result);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
         when(result.list(any(Function.class))).thenReturn(Collections.emptyList());
 
         Map<String, Object> params = new HashMap<>();
@@ -144,7 +177,7 @@ class QueryServiceTest {
         
         // Unknown op results in no condition added to list, so returns empty string
         // Which means no filtering clause added
-        verify(session).run(anyString(), any(Map.class));
+        verify(tx).run(anyString(), any(Map.class));
     }
 
     // Removed duplicate methods
@@ -160,8 +193,8 @@ class QueryServiceTest {
     @Test
     @SuppressWarnings("unchecked")
     void getQueryResult_HandlesFilters_EQ_MultipleValues() {
-        when(databaseDriver.sessionFor()).thenReturn(session);
-        when(session.run(anyString(), any(Map.class))).thenReturn(result);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
         when(result.list(any(Function.class))).thenReturn(Collections.emptyList());
 
         Map<String, Object> params = new HashMap<>();
@@ -172,14 +205,14 @@ class QueryServiceTest {
         queryService.getQueryResult("getAntennaReport", params);
         
         // Should default to IN for multiple values
-        verify(session).run(eq("MATCH (obj:Antenna)  WHERE obj.manufacturerType IN $filterParam0 RETURN obj"), any(Map.class));
+        verify(tx).run(eq("MATCH (obj:Antenna)  WHERE obj.manufacturerType IN $filterParam0 RETURN obj"), any(Map.class));
     }
 
     @Test
     @SuppressWarnings("unchecked")
     void getQueryResult_HandlesFilters_IN() {
-        when(databaseDriver.sessionFor()).thenReturn(session);
-        when(session.run(anyString(), any(Map.class))).thenReturn(result);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
         when(result.list(any(Function.class))).thenReturn(Collections.emptyList());
 
         Map<String, Object> params = new HashMap<>();
@@ -189,14 +222,14 @@ class QueryServiceTest {
         
         queryService.getQueryResult("getAntennaReport", params);
         
-        verify(session).run(org.mockito.ArgumentMatchers.contains("obj.manufacturerType IN $filterParam0"), any(Map.class));
+        verify(tx).run(org.mockito.ArgumentMatchers.contains("obj.manufacturerType IN $filterParam0"), any(Map.class));
     }
 
     @Test
     @SuppressWarnings("unchecked")
     void getQueryResult_HandlesFilters_CONTAINS() {
-        when(databaseDriver.sessionFor()).thenReturn(session);
-        when(session.run(anyString(), any(Map.class))).thenReturn(result);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
         when(result.list(any(Function.class))).thenReturn(Collections.emptyList());
 
         Map<String, Object> params = new HashMap<>();
@@ -206,14 +239,14 @@ class QueryServiceTest {
         
         queryService.getQueryResult("getAntennaReport", params);
         
-        verify(session).run(anyString(), any(Map.class));
+        verify(tx).run(anyString(), any(Map.class));
     }
 
     @Test
     @SuppressWarnings("unchecked")
     void getQueryResult_HandlesFilters_MultipleConditions() {
-        when(databaseDriver.sessionFor()).thenReturn(session);
-        when(session.run(anyString(), any(Map.class))).thenReturn(result);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
         when(result.list(any(Function.class))).thenReturn(Collections.emptyList());
 
         Map<String, Object> params = new HashMap<>();
@@ -224,7 +257,7 @@ class QueryServiceTest {
         
         queryService.getQueryResult("getAntennaReport", params);
         
-        verify(session).run(org.mockito.ArgumentMatchers.argThat(cypher -> {
+        verify(tx).run(org.mockito.ArgumentMatchers.argThat(cypher -> {
             String c = (String) cypher;
             return c.contains("obj.manufacturerType = $filterParam0") &&
                    c.contains("AND") &&
@@ -239,8 +272,8 @@ class QueryServiceTest {
     @Test
     @SuppressWarnings("unchecked")
     void getQueryResult_HandlesSorting() {
-        when(databaseDriver.sessionFor()).thenReturn(session);
-        when(session.run(anyString(), any(Map.class))).thenReturn(result);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
         when(result.list(any(Function.class))).thenReturn(Collections.emptyList());
 
         Map<String, Object> params = new HashMap<>();
@@ -250,14 +283,14 @@ class QueryServiceTest {
         
         queryService.getQueryResult("getAntennaReport", params);
         
-        verify(session).run(eq("MATCH (obj:Antenna)  RETURN obj ORDER BY obj.manufacturerType DESC"), any(Map.class));
+        verify(tx).run(eq("MATCH (obj:Antenna)  RETURN obj ORDER BY obj.manufacturerType DESC"), any(Map.class));
     }
 
     @Test
     @SuppressWarnings("unchecked")
     void getQueryResult_HandlesPagination() {
-        when(databaseDriver.sessionFor()).thenReturn(session);
-        when(session.run(anyString(), any(Map.class))).thenReturn(result);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
         when(result.list(any(Function.class))).thenReturn(Collections.emptyList());
 
         Map<String, Object> params = new HashMap<>();
@@ -266,7 +299,472 @@ class QueryServiceTest {
         
         queryService.getQueryResult("getAntennaReport", params);
         
-        verify(session).run(eq("MATCH (obj:Antenna)  RETURN obj"), any(Map.class));
+        verify(tx).run(eq("MATCH (obj:Antenna)  RETURN obj"), any(Map.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getQueryResult_CoalescesIdenticalExecutionsInFlight() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QueryService coalescing = new QueryService(new ReadTransactions(databaseDriver, AccessMode.READ, Duration.ofSeconds(60), Duration.ofMinutes(30), "test"), metadataService, queryResultCache, new QueryMetrics(registry), indexAdvisor, asyncQueryExecutor);
+        ReflectionTestUtils.setField(coalescing, "coalesceExecutions", true);
+        CountDownLatch release = new CountDownLatch(1);
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
+        when(result.list(any(Function.class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = executor.submit(() -> coalescing.getQueryResult("testQuery", new HashMap<>()));
+            verify(tx, timeout(5000)).run(anyString(), any(Map.class));
+            Future<Object> follower = executor.submit(() -> coalescing.getQueryResult("testQuery", new HashMap<>()));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (registry.find("graphql.query.coalesced").counter() == null && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertSame(leader.get(5, TimeUnit.SECONDS), follower.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(tx, times(1)).run(anyString(), any(Map.class));
+        assertEquals(1.0, registry.get("graphql.query.coalesced").tag("query", "testQuery").counter().count());
+    }
+
+    @Test
+    void renderCypher_ReusesRenderedTextForSameShape() {
+        QueryTemplate template = QueryTemplate.compile("getAntennaReport",
+                Map.of("cypher", "MATCH (obj:Antenna) {{WHERE_CLAUSE_1}} RETURN obj",
+                        "fieldMapping1", Map.of("manufacturer_type", "obj.manufacturerType")));
+
+        Map<String, Object> first = new HashMap<>();
+        first.put("filters", Collections.singletonList(
+            Map.of("field", "manufacturer_type", "op", "EQ", "values", Collections.singletonList("TypeA"))
+        ));
+        Map<String, Object> second = new HashMap<>();
+        second.put("filters", Collections.singletonList(
+            Map.of("field", "manufacturer_type", "op", "EQ", "values", Collections.singletonList("TypeB"))
+        ));
+
+        String firstCypher = queryService.renderCypher(template, first);
+        String secondCypher = queryService.renderCypher(template, second);
+
+        assertSame(firstCypher, secondCypher);
+        assertEquals("TypeA", first.get("filterParam0"));
+        assertEquals("TypeB", second.get("filterParam0"));
+    }
+
+    @Test
+    void renderCypher_NumbersParametersAcrossStages() {
+        QueryTemplate template = QueryTemplate.compile("staged",
+                Map.of("cypher", "MATCH (obj) {{WHERE_CLAUSE_1}} WITH obj {{WHERE_CLAUSE_2}} RETURN obj",
+                        "fieldMapping1", Map.of("element_id", "obj.name"),
+                        "fieldMapping2", Map.of("barcode", "obj.barcode")));
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("filters", Arrays.asList(
+            Map.of("field", "element_id", "op", "EQ", "values", Collections.singletonList("A1")),
+            Map.of("field", "barcode", "op", "EQ", "values", Collections.singletonList("B1"))
+        ));
+
+        String cypher = queryService.renderCypher(template, params);
+
+        assertEquals("MATCH (obj)  WHERE obj.name = $filterParam0 WITH obj  WHERE obj.barcode = $filterParam1 RETURN obj", cypher);
+        assertEquals("A1", params.get("filterParam0"));
+        assertEquals("B1", params.get("filterParam1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamQueryResult_EmitsRowsInChunksAndClosesSession() {
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
+
+        Record record = new InternalRecord(List.of("key"), new Value[] {Values.value("value")});
+        when(result.hasNext()).thenReturn(true, true, true, false);
+        when(result.next()).thenReturn(record);
+
+        List<List<Map<String, Object>>> chunks = queryService.streamQueryResult("testQuery", new HashMap<>(), 2)
+                .collectList()
+                .block();
+
+        assertNotNull(chunks);
+        assertEquals(2, chunks.size());
+        assertEquals(2, chunks.get(0).size());
+        assertEquals(1, chunks.get(1).size());
+        ArgumentCaptor<TransactionConfig> config = ArgumentCaptor.forClass(TransactionConfig.class);
+        verify(session).executeRead(any(), config.capture());
+        assertEquals(Duration.ofMinutes(30), config.getValue().timeout());
+        verify(session).close();
+        assertEquals(2, asyncQueryExecutor.availablePermits());
+    }
+
+    @Test
+    void streamQueryResult_HoldsQueryPermitUntilCancelled() {
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
+        Record record = new InternalRecord(List.of("key"), new Value[] {Values.value("value")});
+        when(result.hasNext()).thenReturn(true);
+        when(result.next()).thenReturn(record);
+
+        List<List<Map<String, Object>>> chunks = queryService.streamQueryResult("testQuery", new HashMap<>(), 1)
+                .doOnNext(chunk -> assertEquals(1, asyncQueryExecutor.availablePermits()))
+                .take(3)
+                .collectList()
+                .block();
+
+        assertEquals(3, chunks.size());
+        verify(session, timeout(1000)).close();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (asyncQueryExecutor.availablePermits() < 2 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(2, asyncQueryExecutor.availablePermits());
+    }
+
+    @Test
+    void renderCypher_BoundsExportPartitionAtFirstStage() {
+        QueryTemplate template = QueryTemplate.compile("keyed",
+                Map.of("cypher", "MATCH (obj) {{WHERE_CLAUSE_1}} {{SKIP_LIMIT}} WITH obj RETURN obj.id as id",
+                        "keyset", Map.of("dbField", "obj.id", "column", "id")));
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("keysetFrom", "A100");
+        params.put("keysetTo", "A200");
+
+        String cypher = queryService.renderCypher(template, params, template.getKeyset());
+
+        assertEquals("MATCH (obj)  WHERE obj.id >= $keysetFrom AND obj.id < $keysetTo  ORDER BY obj.id LIMIT $limit"
+                + " WITH obj RETURN obj.id as id ORDER BY id LIMIT $limit", cypher);
+    }
+
+    @Test
+    void partitionBoundaries_ProbesOneKeyPerBoundaryFromFirstMatch() {
+        String keys = "MATCH (obj:Antenna)  WHERE obj.id IS NOT NULL";
+        Result count = mock(Result.class);
+        stubReadTransactions();
+        when(tx.run(keys + " RETURN count(*) AS total")).thenReturn(count);
+        when(count.single()).thenReturn(new InternalRecord(List.of("total"), new Value[] {Values.value(8L)}));
+        String probe = keys + " WITH obj.id AS key ORDER BY key SKIP $skip LIMIT 1 RETURN key";
+        when(tx.run(eq(probe), any(Map.class))).thenReturn(result);
+        when(result.hasNext()).thenReturn(true);
+        when(result.next()).thenReturn(
+                new InternalRecord(List.of("key"), new Value[] {Values.value("ANT-2")}),
+                new InternalRecord(List.of("key"), new Value[] {Values.value("ANT-2")}),
+                new InternalRecord(List.of("key"), new Value[] {Values.value("ANT-5")}));
+
+        List<Object> boundaries = queryService.partitionBoundaries("getKeyedReport", new HashMap<>(), 4);
+
+        assertEquals(List.of("ANT-2", "ANT-5"), boundaries);
+        verify(tx).run(probe, Map.<String, Object>of("skip", 2L));
+        verify(tx).run(probe, Map.<String, Object>of("skip", 4L));
+        verify(tx).run(probe, Map.<String, Object>of("skip", 6L));
     }
 
+    @Test
+    void renderCypher_RestrictsSnapshotRefreshToChangedKeys() {
+        QueryTemplate template = QueryTemplate.compile("keyed",
+                Map.of("cypher", "MATCH (obj) {{WHERE_CLAUSE_1}} {{SKIP_LIMIT}} WITH obj RETURN obj.id as id",
+                        "keyset", Map.of("dbField", "obj.id", "column", "id")));
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("keysetIn", List.of("A1", "A7"));
+
+        assertEquals("MATCH (obj)  WHERE obj.id IN $keysetIn  ORDER BY obj.id LIMIT $limit"
+                + " WITH obj RETURN obj.id as id ORDER BY id LIMIT $limit", queryService.renderCypher(template, params, template.getKeyset()));
+    }
+
+    @Test
+    void renderCypher_SeeksPastCursorAtFirstStage() {
+        QueryTemplate template = QueryTemplate.compile("keyed",
+                Map.of("cypher", "MATCH (obj) {{WHERE_CLAUSE_1}} {{SKIP_LIMIT}} WITH obj RETURN obj.id as id",
+                        "fieldMapping1", Map.of("element_id", "obj.name"),
+                        "keyset", Map.of("dbField", "obj.id", "column", "id")));
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("keysetAfter", "A100");
+        params.put("filters", Collections.singletonList(
+            Map.of("field", "element_id", "op", "EQ", "values", Collections.singletonList("A1"))
+        ));
+
+        String cypher = queryService.renderCypher(template, params, template.getKeyset());
+
+        assertEquals("MATCH (obj)  WHERE obj.name = $filterParam0 AND obj.id > $keysetAfter  ORDER BY obj.id LIMIT $limit"
+                + " WITH obj RETURN obj.id as id ORDER BY id LIMIT $limit", cypher);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getReportPage_EndsPagesOnWholeKeys() {
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenAnswer(invocation -> {
+            Map<String, Object> parameters = invocation.getArgument(1);
+            Result page = mock(Result.class);
+            answerRows(page, parameters.containsKey("keysetAfter")
+                    ? List.of(reportRecord(2L, "A", null), reportRecord(2L, "B", null), reportRecord(3L, "A", null))
+                    : List.of(reportRecord(1L, "A", null), reportRecord(2L, "A", null), reportRecord(2L, "B", null)));
+            return page;
+        });
+
+        Map<String, Object> firstPage = queryService.getReportPage("getKeyedReport", new HashMap<>(), 2, null);
+        Map<String, Object> firstInfo = (Map<String, Object>) firstPage.get("pageInfo");
+        Map<String, Object> secondPage = queryService.getReportPage("getKeyedReport", new HashMap<>(), 2, (String) firstInfo.get("endCursor"));
+
+        assertEquals(List.of("1:A"), pageRows(firstPage));
+        assertEquals(true, firstInfo.get("hasNextPage"));
+        assertEquals(1L, ReportCursor.decode((String) firstInfo.get("endCursor")));
+        assertEquals(List.of("2:A", "2:B"), pageRows(secondPage));
+        assertEquals(2L, ReportCursor.decode((String) ((Map<String, Object>) secondPage.get("pageInfo")).get("endCursor")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getReportPage_ReturnsKeyLargerThanPageWhole() {
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenAnswer(invocation -> {
+            Map<String, Object> parameters = invocation.getArgument(1);
+            Result page = mock(Result.class);
+            answerRows(page, parameters.containsKey("keysetIn")
+                    ? List.of(reportRecord(1L, "A", null), reportRecord(1L, "B", null), reportRecord(1L, "C", null), reportRecord(1L, "D", null))
+                    : parameters.containsKey("keysetAfter") ? List.of()
+                    : List.of(reportRecord(1L, "A", null), reportRecord(1L, "B", null), reportRecord(1L, "C", null)));
+            return page;
+        });
+
+        Map<String, Object> page = queryService.getReportPage("getKeyedReport", new HashMap<>(), 2, null);
+
+        assertEquals(List.of("1:A", "1:B", "1:C", "1:D"), pageRows(page));
+        assertEquals(false, ((Map<String, Object>) page.get("pageInfo")).get("hasNextPage"));
+    }
+
+    @Test
+    void renderCountCypher_StopsAtPagingPoint() {
+        QueryTemplate template = QueryTemplate.compile("keyed",
+                Map.of("cypher", "MATCH (obj) {{WHERE_CLAUSE_1}} {{SKIP_LIMIT}} WITH obj RETURN obj.id as id",
+                        "fieldMapping1", Map.of("element_id", "obj.name")));
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("filters", Collections.singletonList(
+            Map.of("field", "element_id", "op", "EQ", "values", Collections.singletonList("A1"))
+        ));
+
+        assertEquals("MATCH (obj)  WHERE obj.name = $filterParam0  RETURN count(*) AS totalCount",
+                queryService.renderCountCypher(template, params));
+        assertNull(queryService.renderCountCypher(QueryTemplate.compile("unpaged", Map.of("cypher", "MATCH (obj) RETURN obj")), params));
+    }
+
+    @Test
+    void renderCountCypher_GivesUpOnFiltersAfterPagingPoint() {
+        QueryTemplate template = queryService.getTemplate("getKeyedReport");
+        Map<String, Object> params = new HashMap<>();
+        params.put("filters", List.of(
+                Map.of("field", "element_id", "op", "EQ", "values", List.of("A1")),
+                Map.of("field", "location_in_site", "op", "CONTAINS", "values", List.of("Rack"))));
+
+        assertNull(queryService.renderCountCypher(template, params));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getTotalCount_IgnoresPagingArgumentsInCacheKey() {
+        Record record = new InternalRecord(List.of("totalCount"), new Value[] {Values.value(1234L)});
+        when(queryResultCache.getCount(anyString(), any())).thenAnswer(invocation -> ((Supplier<Long>) invocation.getArgument(1)).get());
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
+        when(result.single()).thenReturn(record);
+
+        Map<String, Object> first = new HashMap<>(Map.of("limit", 10, "offset", 0));
+        Map<String, Object> second = new HashMap<>(Map.of("limit", 50, "offset", 100, "sort", "id"));
+
+        assertEquals(1234L, queryService.getTotalCount("getKeyedReport", first));
+        queryService.getTotalCount("getKeyedReport", second);
+
+        ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+        verify(queryResultCache, times(2)).getCount(keys.capture(), any());
+        assertEquals(keys.getAllValues().get(0), keys.getAllValues().get(1));
+        verify(tx, times(2)).run(argThat((String cypher) -> cypher.endsWith("RETURN count(*) AS totalCount")
+                && !cypher.contains("subgraphAll")), any(Map.class));
+    }
+
+    @Test
+    void renderCypher_PlacesIndexedPredicatesFirst() {
+        QueryTemplate template = QueryTemplate.compile("indexed",
+                Map.of("cypher", "MATCH (obj:Antenna) {{WHERE_CLAUSE_1}} RETURN obj.id as id",
+                        "fieldMapping1", Map.of("serial_number", "obj.serialNumber", "element_id", "obj.name")));
+        when(indexAdvisor.isIndexed(template, "obj.serialNumber", "CONTAINS")).thenReturn(false);
+        when(indexAdvisor.isIndexed(template, "obj.name", "EQ")).thenReturn(true);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("filters", Arrays.asList(
+            Map.of("field", "serial_number", "op", "CONTAINS", "values", Collections.singletonList("SN")),
+            Map.of("field", "element_id", "op", "EQ", "values", Collections.singletonList("A1"))
+        ));
+
+        String cypher = queryService.renderCypher(template, params);
+
+        assertEquals("MATCH (obj:Antenna)  WHERE obj.name = $filterParam1 AND obj.serialNumber CONTAINS $filterParam0"
+                + " RETURN obj.id as id", cypher);
+    }
+
+    @Test
+    void renderCypher_PrunesOptionalColumnsNotRequested() {
+        QueryTemplate template = queryService.getTemplate("getKeyedReport");
+
+        Map<String, Object> pruned = new HashMap<>();
+        pruned.put("columns", List.of("element_id", "resource_status"));
+        String prunedCypher = queryService.renderCypher(template, pruned);
+
+        Map<String, Object> filtered = new HashMap<>(pruned);
+        filtered.put("filters", Collections.singletonList(
+            Map.of("field", "location_in_site", "op", "CONTAINS", "values", Collections.singletonList("Rack"))
+        ));
+        String filteredCypher = queryService.renderCypher(template, filtered);
+
+        assertFalse(prunedCypher.contains("subgraphAll"));
+        assertTrue(prunedCypher.contains("WITH DISTINCT obj, objType"));
+        assertTrue(prunedCypher.contains("null AS location_in_site"));
+        assertTrue(filteredCypher.contains("subgraphAll"));
+        assertTrue(filteredCypher.contains("apoc.text.join(nodeDescriptions, ', ') AS location_in_site"));
+        assertTrue(queryService.renderCypher(template, new HashMap<>()).contains("subgraphAll"));
+    }
+
+    @Test
+    void renderCypher_SortsBeforePagingOnEarlyStageFields() {
+        QueryTemplate template = stagedTemplate();
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("sort", Arrays.asList(
+            Map.of("field", "type_name", "direction", "DESC"),
+            Map.of("field", "element_id")
+        ));
+
+        String cypher = queryService.renderCypher(template, params);
+
+        assertEquals("MATCH (obj)  MATCH (obj)--(t)   ORDER BY t.name DESC, obj.name ASC, obj.id SKIP $offset LIMIT $limit"
+                + " WITH obj, t OPTIONAL MATCH (obj)-->(p)  RETURN obj.id as id, p.name as parent_type"
+                + " ORDER BY t.name DESC, obj.name ASC, id", cypher);
+    }
+
+    @Test
+    void renderCypher_PagesAfterTopKSortOnLateStageFields() {
+        ReflectionTestUtils.setField(queryService, "maxSortWindow", 1000L);
+        QueryTemplate template = stagedTemplate();
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("limit", 10);
+        params.put("offset", 20);
+        params.put("sort", Arrays.asList(
+            Map.of("field", "element_id", "direction", "ASC"),
+            Map.of("field", "parent_type", "direction", "DESC")
+        ));
+
+        String cypher = queryService.renderCypher(template, params);
+
+        assertEquals("MATCH (obj)  MATCH (obj)--(t)   WITH obj, t OPTIONAL MATCH (obj)-->(p)  RETURN obj.id as id, p.name as parent_type"
+                + " ORDER BY obj.name ASC, p.name DESC SKIP $offset LIMIT $limit", cypher);
+    }
+
+    @Test
+    void renderCypher_RejectsLateStageSortBeyondSortWindow() {
+        ReflectionTestUtils.setField(queryService, "maxSortWindow", 1000L);
+        QueryTemplate template = stagedTemplate();
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("limit", 100);
+        params.put("offset", 950);
+        params.put("sort", Collections.singletonList(Map.of("field", "parent_type", "direction", "ASC")));
+
+        GraphQlApplicationException exception = assertThrows(GraphQlApplicationException.class,
+                () -> queryService.renderCypher(template, params));
+        assertEquals("SORT_WINDOW_EXCEEDED", exception.getErrorCode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getQueryResult_RanksLateStageSortBeforeProjectingPage() {
+        ReflectionTestUtils.setField(queryService, "maxSortWindow", 1000L);
+        stubReadTransactions();
+        Result ranking = mock(Result.class);
+        Result projecting = mock(Result.class);
+        when(tx.run(anyString(), any(Map.class))).thenAnswer(invocation ->
+                ((String) invocation.getArgument(0)).contains("subgraphAll") ? projecting : ranking);
+        answerRows(ranking, List.of(reportRecord(2L, "B", null), reportRecord(1L, "A", null)));
+        answerRows(projecting, List.of(reportRecord(1L, "Z", "Rack 9"), reportRecord(1L, "A", "Rack 1"), reportRecord(2L, "B", "Rack 2")));
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("limit", 2);
+        params.put("sort", Collections.singletonList(Map.of("field", "parent_type", "direction", "DESC")));
+
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) queryService.getQueryResult("getRankedReport", params);
+
+        assertEquals(List.of(2L, 1L), rows.stream().map(row -> row.get("id")).toList());
+        assertEquals(List.of("Rack 2", "Rack 1"), rows.stream().map(row -> row.get("location_in_site")).toList());
+        ArgumentCaptor<String> cypher = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Map<String, Object>> bound = ArgumentCaptor.forClass(Map.class);
+        verify(tx, times(2)).run(cypher.capture(), bound.capture());
+        assertTrue(cypher.getAllValues().get(0).endsWith("ORDER BY parent.name DESC SKIP $offset LIMIT $limit"));
+        assertTrue(cypher.getAllValues().get(1).contains("obj.id IN $keysetIn"));
+        assertEquals(List.of(2L, 1L), bound.getAllValues().get(1).get("keysetIn"));
+    }
+
+    @Test
+    void reportCursor_RoundTripsKeyValues() {
+        assertEquals("A100", ReportCursor.decode(ReportCursor.encode("A100")));
+        assertEquals(42L, ReportCursor.decode(ReportCursor.encode(42L)));
+        assertThrows(GraphQlApplicationException.class, () -> ReportCursor.decode("not-a-cursor"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getQueryResult_ReadsInTransactionNamedAfterQuery() {
+        stubReadTransactions();
+        when(tx.run(anyString(), any(Map.class))).thenReturn(result);
+        when(result.list(any(Function.class))).thenReturn(List.of());
+
+        queryService.getQueryResult("testQuery", new HashMap<>());
+
+        ArgumentCaptor<TransactionConfig> config = ArgumentCaptor.forClass(TransactionConfig.class);
+        verify(session).executeRead(any(), config.capture());
+        assertEquals(Duration.ofSeconds(60), config.getValue().timeout());
+        assertEquals(Values.value("testQuery"), config.getValue().metadata().get("query"));
+        verify(session).close();
+    }
+
+    private void stubReadTransactions() {
+        when(databaseDriver.sessionFor()).thenReturn(session);
+        when(session.executeRead(any(), any(TransactionConfig.class)))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).execute(tx));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> pageRows(Map<String, Object> page) {
+        return ((List<Map<String, Object>>) page.get("rows")).stream().map(row -> row.get("id") + ":" + row.get("parent_type")).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void answerRows(Result result, List<Record> records) {
+        when(result.list(any(Function.class))).thenAnswer(invocation -> {
+            Function<Record, Map<String, Object>> mapper = invocation.getArgument(0);
+            return records.stream().map(mapper).toList();
+        });
+    }
+
+    private static Record reportRecord(long id, String parentType, String locationInSite) {
+        return new InternalRecord(List.of("id", "parent_type", "location_in_site"),
+                new Value[] {Values.value(id), Values.value(parentType), Values.value(locationInSite)});
+    }
+
+    private static QueryTemplate stagedTemplate() {
+        return QueryTemplate.compile("staged",
+                Map.of("cypher", "MATCH (obj) {{WHERE_CLAUSE_1}} MATCH (obj)--(t) {{WHERE_CLAUSE_2}} {{SKIP_LIMIT}}"
+                                + " WITH obj, t OPTIONAL MATCH (obj)-->(p) {{WHERE_CLAUSE_3}} RETURN obj.id as id, p.name as parent_type",
+                        "keyset", Map.of("dbField", "obj.id", "column", "id"),
+                        "fieldMapping1", Map.of("element_id", "obj.name"),
+                        "fieldMapping2", Map.of("type_name", "t.name"),
+                        "fieldMapping3", Map.of("parent_type", "p.name")));
+    }
 }
@@ -0,0 +1,91 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class QueryTemplateTest {
+
+    @Test
+    void render_ReplacesResolvedPlaceholdersAndKeepsUnknownOnes() {
+        QueryTemplate template = QueryTemplate.compile("test",
+                Map.of("cypher", "MATCH (n:{{label}}) {{WHERE_CLAUSE_1}} RETURN n {{other}}"));
+
+        String cypher = template.render(placeholder -> "label".equals(placeholder) ? "Person" :
+                placeholder.startsWith("WHERE_CLAUSE_") ? "" : null);
+
+        assertEquals("MATCH (n:Person)  RETURN n {{other}}", cypher);
+    }
+
+    @Test
+    void compile_MergesStageMappings() {
+        QueryTemplate template = QueryTemplate.compile("test",
+                Map.of("cypher", "MATCH (n) RETURN n",
+                        "fieldMapping1", Map.of("a", "n.a"),
+                        "fieldMapping3", Map.of("b", "n.b")));
+
+        assertEquals("n.a", template.getStageMapping(1).get("a"));
+        assertTrue(template.getStageMapping(2).isEmpty());
+        assertEquals(2, template.getFieldMappings().size());
+    }
+
+    @Test
+    void compile_ResolvesStagesBeforePagingPoint() {
+        QueryTemplate template = QueryTemplate.compile("test",
+                Map.of("cypher", "MATCH (n) {{WHERE_CLAUSE_1}} MATCH (n)--(m) {{WHERE_CLAUSE_2}} {{SKIP_LIMIT}} WITH n, m {{WHERE_CLAUSE_3}} RETURN n",
+                        "fieldMapping1", Map.of("a", "n.a"),
+                        "fieldMapping3", Map.of("a", "m.a", "b", "m.b")));
+
+        assertEquals(2, template.getPagingStage());
+        assertEquals(1, template.getStage("a"));
+        assertEquals(3, template.getStage("b"));
+        assertEquals(0, template.getStage("c"));
+        assertEquals(0, QueryTemplate.compile("test", Map.of("cypher", "MATCH (n) {{WHERE_CLAUSE_1}} RETURN n")).getPagingStage());
+    }
+
+    @Test
+    void compile_ParsesTransactionTimeout() {
+        assertEquals(Duration.ofSeconds(30),
+                QueryTemplate.compile("test", Map.of("cypher", "MATCH (n) RETURN n", "timeout", "30s")).getTimeout());
+        assertNull(QueryTemplate.compile("test", Map.of("cypher", "MATCH (n) RETURN n")).getTimeout());
+    }
+
+    @Test
+    void compile_RequiresKeysetForMaterializedQueries() {
+        QueryTemplate template = QueryTemplate.compile("test", Map.of("cypher", "MATCH (n) RETURN n.id AS id",
+                "keyset", Map.of("dbField", "n.id", "column", "id"),
+                "materialize", Map.of("version", "n._version", "refresh", "30s")));
+
+        assertEquals(new QueryTemplate.Materialization("n._version", Duration.ofSeconds(30), Duration.ofHours(6)), template.getMaterialization());
+        assertThrows(IllegalArgumentException.class, () -> QueryTemplate.compile("test",
+                Map.of("cypher", "MATCH (n) RETURN n", "materialize", Map.of("version", "n._version"))));
+    }
+
+    @Test
+    void render_KeepsOptionalSectionsOfNeededColumnsOnly() {
+        QueryTemplate template = QueryTemplate.compile("test",
+                Map.of("cypher", "MATCH (n) {{#path}}CALL expensive(n) YIELD path {{/path}}RETURN n.id AS id, "
+                        + "{{#path}}path{{/path}}{{^path}}null{{/path}} AS path"));
+
+        assertEquals(java.util.Set.of("path"), template.getOptionalColumns());
+        assertTrue(template.getPlaceholderNames().isEmpty());
+        assertEquals("MATCH (n) CALL expensive(n) YIELD path RETURN n.id AS id, path AS path",
+                template.render(placeholder -> null));
+        assertEquals("MATCH (n) RETURN n.id AS id, null AS path",
+                template.render(placeholder -> null, column -> false));
+    }
+
+    @Test
+    void compile_RejectsUnmatchedSections() {
+        assertThrows(IllegalArgumentException.class,
+                () -> QueryTemplate.compile("test", Map.of("cypher", "MATCH (n) {{#path}}RETURN n")));
+        assertThrows(IllegalArgumentException.class,
+                () -> QueryTemplate.compile("test", Map.of("cypher", "MATCH (n) {{#path}}RETURN n{{/other}}")));
+    }
+}
@@ -5,6 +5,7 @@ import java.time.Duration;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,7 +19,7 @@ class RateLimitingServiceTest {
 
     @BeforeEach
     void setUp() {
-        rateLimitingService = new RateLimitingService();
+        rateLimitingService = new RateLimitingService(1000, Duration.ofMinutes(10));
         ReflectionTestUtils.setField(rateLimitingService, "capacity", 10L);
         ReflectionTestUtils.setField(rateLimitingService, "duration", Duration.ofMinutes(1));
     }
@@ -54,4 +55,20 @@ class RateLimitingServiceTest {
         assertEquals(9, bucket1.getAvailableTokens());
         assertEquals(10, bucket2.getAvailableTokens());
     }
+
+    @Test
+    void resolveBucket_SharesOverflowBucketInsteadOfEvictingDrainedBuckets() {
+        RateLimitingService limited = new RateLimitingService(2, Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(limited, "capacity", 10L);
+        ReflectionTestUtils.setField(limited, "duration", Duration.ofMinutes(1));
+        Bucket drained = limited.resolveBucket("127.0.0.1");
+        drained.tryConsume(10);
+        limited.resolveBucket("192.168.1.1");
+
+        Bucket overflow = limited.resolveBucket("10.0.0.1");
+
+        assertSame(overflow, limited.resolveBucket("10.0.0.2"));
+        assertSame(drained, limited.resolveBucket("127.0.0.1"));
+        assertEquals(0, limited.resolveBucket("127.0.0.1").getAvailableTokens());
+    }
 }
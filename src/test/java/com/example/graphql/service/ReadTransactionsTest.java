@@ -0,0 +1,80 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.TransactionCallback;
+import org.neo4j.driver.TransactionConfig;
+import org.neo4j.driver.TransactionContext;
+import org.neo4j.driver.Values;
+
+import com.telstra.tni.commonutils.neo4j.DatabaseDriver;
+
+@ExtendWith(MockitoExtension.class)
+class ReadTransactionsTest {
+
+    @Mock
+    private DatabaseDriver databaseDriver;
+    @Mock
+    private Session session;
+    @Mock
+    private TransactionContext tx;
+
+    @Test
+    void read_RunsManagedReadWithQueryTimeoutAndMetadata() {
+        ReadTransactions readTransactions = new ReadTransactions(databaseDriver, AccessMode.READ, Duration.ofSeconds(60), Duration.ofMinutes(30), "reports");
+        when(databaseDriver.sessionFor()).thenReturn(session);
+        when(session.executeRead(any(), any(TransactionConfig.class)))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).execute(tx));
+
+        assertEquals("done", readTransactions.read("getAntennaReport", Duration.ofSeconds(5), context -> "done"));
+
+        ArgumentCaptor<TransactionConfig> config = ArgumentCaptor.forClass(TransactionConfig.class);
+        verify(session).executeRead(any(), config.capture());
+        assertEquals(Duration.ofSeconds(5), config.getValue().timeout());
+        assertEquals(Values.value("reports"), config.getValue().metadata().get("app"));
+        assertEquals(Values.value("getAntennaReport"), config.getValue().metadata().get("query"));
+        verify(session).close();
+    }
+
+    @Test
+    void readStream_UsesStreamTimeout() {
+        ReadTransactions readTransactions = new ReadTransactions(databaseDriver, AccessMode.READ, Duration.ofSeconds(60), Duration.ofMinutes(30), "reports");
+        when(databaseDriver.sessionFor()).thenReturn(session);
+        when(session.executeRead(any(), any(TransactionConfig.class))).thenReturn("streamed");
+
+        assertEquals("streamed", readTransactions.readStream("getAntennaReport", context -> "unused"));
+
+        ArgumentCaptor<TransactionConfig> config = ArgumentCaptor.forClass(TransactionConfig.class);
+        verify(session).executeRead(any(), config.capture());
+        assertEquals(Duration.ofMinutes(30), config.getValue().timeout());
+        assertEquals(Values.value("getAntennaReport"), config.getValue().metadata().get("query"));
+        verify(session).close();
+    }
+
+    @Test
+    void read_PinsToLeaderInWriteAccessMode() {
+        ReadTransactions readTransactions = new ReadTransactions(databaseDriver, AccessMode.WRITE, Duration.ofSeconds(60), Duration.ofMinutes(30), "reports");
+        when(databaseDriver.sessionFor()).thenReturn(session);
+        when(session.executeWrite(any(), any(TransactionConfig.class))).thenReturn(42L);
+
+        assertEquals(42L, readTransactions.read("enumerations", null, context -> 0L));
+
+        ArgumentCaptor<TransactionConfig> config = ArgumentCaptor.forClass(TransactionConfig.class);
+        verify(session).executeWrite(any(), config.capture());
+        assertEquals(Duration.ofSeconds(60), config.getValue().timeout());
+        verify(session, never()).executeRead(any(), any(TransactionConfig.class));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.graphql.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.internal.InternalRecord;
+
+class RecordProjectorTest {
+
+    private final List<String> keys = List.of("id", "npi_id", "weight", "active", "barcode");
+    private final RecordProjector projector = new RecordProjector(keys);
+
+    @Test
+    void project_ConvertsColumnsByPosition() {
+        Map<String, Object> row = projector.project(record("ANT-1", 104512L, 2.5, true, null));
+
+        assertEquals("ANT-1", row.get("id"));
+        assertEquals(104512L, row.get("npi_id"));
+        assertEquals(2.5, row.get("weight"));
+        assertEquals(true, row.get("active"));
+        assertNull(row.get("barcode"));
+        assertTrue(row.containsKey("barcode"));
+        assertFalse(row.containsKey("unknown"));
+        assertEquals(5, row.size());
+    }
+
+    @Test
+    void project_BehavesLikeAnOrderedReadOnlyMap() {
+        Map<String, Object> row = projector.project(record("ANT-1", 1L, 1.0, false, "B1"));
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("id", "ANT-1");
+        expected.put("npi_id", 1L);
+        expected.put("weight", 1.0);
+        expected.put("active", false);
+        expected.put("barcode", "B1");
+        assertEquals(expected, row);
+        assertEquals(keys, new ArrayList<>(row.keySet()));
+        assertThrows(UnsupportedOperationException.class, () -> row.put("id", "other"));
+    }
+
+    @Test
+    void project_RowsAreSerializable() throws Exception {
+        Map<String, Object> row = projector.project(record("ANT-1", 1L, 1.0, false, "B1"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(row);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(row, in.readObject());
+        }
+    }
+
+    @Test
+    void matches_ComparesKeyLists() {
+        assertTrue(projector.matches(keys));
+        assertTrue(projector.matches(new ArrayList<>(keys)));
+        assertFalse(projector.matches(List.of("id")));
+    }
+
+    private Record record(Object... values) {
+        Value[] converted = new Value[values.length];
+        for (int i = 0; i < values.length; i++) {
+            converted[i] = Values.value(values[i]);
+        }
+        return new InternalRecord(keys, converted);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.graphql.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import org.mockito.Mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.TransactionCallback;
+import org.neo4j.driver.TransactionContext;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.exceptions.ServiceUnavailableException;
+import org.neo4j.driver.internal.InternalRecord;
+import org.springframework.graphql.execution.DefaultBatchLoaderRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class RelationshipBatchLoaderTest {
+
+    private static final RelationshipQuery SITE = new RelationshipQuery("UNWIND $ids AS parentId MATCH (n:Antenna) RETURN 'site'", false);
+    private static final RelationshipQuery PORTS = new RelationshipQuery("UNWIND $ids AS parentId MATCH (n:Antenna) RETURN 'ports'", true);
+
+    @Mock
+    private ReadTransactions readTransactions;
+    @Mock
+    private TransactionContext tx;
+    @Mock
+    private Result siteResult;
+    @Mock
+    private Result portsResult;
+
+    private RelationshipBatchLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        loader = new RelationshipBatchLoader(readTransactions, new DefaultBatchLoaderRegistry(), new AsyncQueryExecutor(4, Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void load_GroupsRelatedNodesBackByParentAndRelationship() {
+        when(readTransactions.read(eq(RelationshipBatchLoader.LOADER_NAME), isNull(), any()))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(2)).execute(tx));
+        when(tx.run(eq(SITE.cypher()), any(Map.class))).thenReturn(siteResult);
+        when(tx.run(eq(PORTS.cypher()), any(Map.class))).thenReturn(portsResult);
+        when(siteResult.list()).thenReturn(List.of(
+                record("A1", List.of(Map.of("name", "S1"), Map.of("name", "S2"))),
+                record("A2", List.of())));
+        when(portsResult.list()).thenReturn(List.of(record("A1", List.of(Map.of("name", "P1"), Map.of("name", "P2")))));
+
+        Map<RelationshipBatchLoader.RelationshipKey, Object> results = loader.load(Set.of(key(SITE, "A1"), key(SITE, "A2"),
+                key(SITE, "A3"), key(PORTS, "A1"), key(PORTS, "A3")));
+
+        assertEquals(Map.of("name", "S1"), results.get(key(SITE, "A1")));
+        assertEquals(List.of(Map.of("name", "P1"), Map.of("name", "P2")), results.get(key(PORTS, "A1")));
+        // parents without a related node and parents that are not found resolve to null or an empty list
+        assertNull(results.get(key(SITE, "A2")));
+        assertNull(results.get(key(SITE, "A3")));
+        assertEquals(List.of(), results.get(key(PORTS, "A3")));
+        verify(tx).run(eq(SITE.cypher()), argThat((Map<String, Object> parameters) ->
+                Set.copyOf((List<?>) parameters.get("ids")).equals(Set.of("A1", "A2", "A3"))));
+    }
+
+    @Test
+    void load_WrapsDriverFailures() {
+        when(readTransactions.read(eq(RelationshipBatchLoader.LOADER_NAME), isNull(), any()))
+                .thenThrow(new ServiceUnavailableException("down"));
+
+        GraphQlApplicationException exception = assertThrows(GraphQlApplicationException.class, () -> loader.load(Set.of(key(SITE, "A1"))));
+        assertEquals("QUERY_EXECUTION_ERROR", exception.getErrorCode());
+    }
+
+    private static RelationshipBatchLoader.RelationshipKey key(RelationshipQuery query, String parentId) {
+        return new RelationshipBatchLoader.RelationshipKey(query, parentId);
+    }
+
+    private static Record record(String parentId, List<Map<String, Object>> related) {
+        return new InternalRecord(List.of("parentId", "related"), new Value[] {Values.value(parentId), Values.value(related)});
+    }
+}
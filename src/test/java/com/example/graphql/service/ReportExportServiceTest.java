@@ -0,0 +1,133 @@
+package com.example.graphql.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+class ReportExportServiceTest {
+
+    @Mock
+    private QueryService queryService;
+
+    private ReportExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ReportExportService(queryService, new AsyncQueryExecutor(4, Duration.ofSeconds(5)), new ObjectMapper());
+        ReflectionTestUtils.setField(exportService, "partitions", 2);
+        ReflectionTestUtils.setField(exportService, "queueCapacity", 2);
+    }
+
+    @Test
+    void export_WritesRowsOfAllPartitionsAsGzipCsv() throws Exception {
+        when(queryService.partitionBoundaries(eq("getAntennaReport"), anyMap(), anyInt())).thenReturn(List.of("ANT-2"));
+        answerPartition(null, "ANT-2", row("ANT-1", "Level 1, Rack \"A\""));
+        answerPartition("ANT-2", null, row("ANT-2", "Level 2"), row("ANT-3", null));
+
+        String csv = export(ExportFormat.CSV);
+
+        List<String> lines = List.of(csv.split("\r\n"));
+        assertEquals("id,location_in_site", lines.get(0));
+        assertEquals(4, lines.size());
+        assertTrue(lines.contains("ANT-1,\"Level 1, Rack \"\"A\"\"\""));
+        assertTrue(lines.contains("ANT-2,Level 2"));
+        assertTrue(lines.contains("ANT-3,"));
+    }
+
+    @Test
+    void export_WritesNdjson() throws Exception {
+        when(queryService.partitionBoundaries(eq("getAntennaReport"), anyMap(), anyInt())).thenReturn(List.of());
+        answerPartition(null, null, row("ANT-1", "Level 1"));
+
+        assertEquals("{\"id\":\"ANT-1\",\"location_in_site\":\"Level 1\"}\n", export(ExportFormat.NDJSON));
+    }
+
+    @Test
+    void export_FailsWhenAPartitionFails() {
+        when(queryService.partitionBoundaries(eq("getAntennaReport"), anyMap(), anyInt())).thenReturn(List.of());
+        doThrow(new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "boom"))
+                .when(queryService).forEachRow(eq("getAntennaReport"), anyMap(), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(GraphQlApplicationException.class, () -> exportService.export("Antenna", Map.of(), ExportFormat.CSV, out));
+        // nothing is written, so the response can still report the error
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void export_EndsFileWithErrorMarkerWhenFailingAfterFirstRow() throws Exception {
+        when(queryService.partitionBoundaries(eq("getAntennaReport"), anyMap(), anyInt())).thenReturn(List.of());
+        doAnswer(invocation -> {
+            Predicate<Map<String, Object>> consumer = invocation.getArgument(2);
+            consumer.test(row("ANT-1", "Level 1"));
+            throw new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "boom");
+        }).when(queryService).forEachRow(eq("getAntennaReport"), anyMap(), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(GraphQlApplicationException.class, () -> exportService.export("Antenna", Map.of(), ExportFormat.NDJSON, out));
+
+        String ndjson = gunzip(out);
+        assertEquals("{\"id\":\"ANT-1\",\"location_in_site\":\"Level 1\"}\n{\"error\":\"Export failed: boom\"}\n", ndjson);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void answerPartition(Object from, Object to, Map<String, Object>... rows) {
+        doAnswer(invocation -> {
+            Predicate<Map<String, Object>> consumer = invocation.getArgument(2);
+            for (Map<String, Object> row : rows) {
+                consumer.test(row);
+            }
+            return null;
+        }).when(queryService).forEachRow(eq("getAntennaReport"),
+                argThat(parameters -> parameters != null && java.util.Objects.equals(parameters.get("keysetFrom"), from)
+                        && java.util.Objects.equals(parameters.get("keysetTo"), to)), any());
+    }
+
+    private String export(ExportFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export("Antenna", Map.of(), format, out);
+        return gunzip(out);
+    }
+
+    private static String gunzip(ByteArrayOutputStream out) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, Object> row(String id, String location) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", id);
+        row.put("location_in_site", location);
+        return row;
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.graphql.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.graphql.exceptions.GraphQlApplicationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ReportSnapshotStoreTest {
+
+    private static final String QUERY = "getSiteReport";
+    private static final QueryTemplate TEMPLATE = QueryTemplate.compile(QUERY,
+            Map.of("cypher", "MATCH (obj:Antenna) {{WHERE_CLAUSE_1}} MATCH (obj)--(site) {{SKIP_LIMIT}}"
+                            + " RETURN obj.id as id, obj.name as element_id, site.name AS site_code",
+                    "keyset", Map.of("dbField", "obj.id", "column", "id"),
+                    "materialize", Map.of("version", "obj._version"),
+                    "fieldMapping1", Map.of("element_id", "obj.name", "site_code", "site.name", "structure_state", "site.name")));
+
+    @Mock
+    private QueryService queryService;
+
+    private ReportSnapshotStore store;
+
+    @BeforeEach
+    void setUp() {
+        when(queryService.getQueryNames()).thenReturn(Set.of(QUERY));
+        when(queryService.getTemplate(QUERY)).thenReturn(TEMPLATE);
+        store = new ReportSnapshotStore(queryService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    void servableFields_KeepsFieldsReturnedUnderTheirName() {
+        assertEquals(Set.of("element_id", "site_code"), ReportSnapshotStore.servableFields(TEMPLATE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refresh_RereadsOnlyChangedKeysAfterFirstLoad() {
+        when(queryService.keyVersions(QUERY)).thenReturn(Map.of(1L, "a", 2L, "a", 3L, "a"), Map.of(1L, "a", 2L, "b", 4L, "a"));
+        answerRows(keys(1L, 2L, 3L), row(1L, "E1", "S1"), row(2L, "E2", "S2"), row(3L, "E3", "S1"));
+        answerRows(keys(2L, 4L), row(4L, "E4", "S2"), row(2L, "E2b", "S2"));
+
+        assertTrue(store.refresh(QUERY));
+        assertTrue(store.refresh(QUERY));
+
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) store.getReport(QUERY, new HashMap<>(), null, null, false).get("rows");
+        assertEquals(List.of(1L, 2L, 4L), rows.stream().map(row -> row.get("id")).toList());
+        assertEquals("E2b", rows.get(1).get("element_id"));
+        verify(queryService).forEachRow(eq(QUERY), argThat((Map<String, Object> parameters) ->
+                parameters.get("keysetIn") instanceof List<?> keys && Set.copyOf(keys).equals(Set.of(2L, 4L))), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refresh_ReplacesEveryRowOfChangedKey() {
+        when(queryService.keyVersions(QUERY)).thenReturn(Map.of(1L, "a", 2L, "a"), Map.of(1L, "a", 2L, "b"));
+        answerRows(keys(1L, 2L), row(1L, "E1", "S1"), row(1L, "E1", "S2"), row(2L, "E2", "S1"), row(2L, "E2", "S2"));
+        answerRows(keys(2L), row(2L, "E2b", "S1"), row(2L, "E2b", "S3"));
+
+        assertTrue(store.refresh(QUERY));
+        assertTrue(store.refresh(QUERY));
+
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) store.getReport(QUERY, new HashMap<>(), null, null, false).get("rows");
+        assertEquals(List.of("1:S1", "1:S2", "2:S1", "2:S3"), rows.stream().map(row -> row.get("id") + ":" + row.get("site_code")).toList());
+        assertEquals(List.of("E1", "E1", "E2b", "E2b"), rows.stream().map(row -> row.get("element_id")).toList());
+    }
+
+    @Test
+    void refresh_LoadsInKeyBatchesAndCountsFailures() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        store.bindTo(registry);
+        Map<Object, Object> versions = new HashMap<>();
+        for (long key = 1500; key > 0; key--) {
+            versions.put(key, "a");
+        }
+        when(queryService.keyVersions(QUERY)).thenReturn(versions).thenThrow(new GraphQlApplicationException("QUERY_EXECUTION_ERROR", "timeout"));
+        List<List<?>> batches = new ArrayList<>();
+        doAnswer(invocation -> batches.add((List<?>) ((Map<?, ?>) invocation.getArgument(1)).get("keysetIn")))
+                .when(queryService).forEachRow(eq(QUERY), any(), any());
+
+        assertTrue(store.refresh(QUERY));
+        assertFalse(store.refresh(QUERY));
+
+        assertEquals(List.of(1000, 500), batches.stream().map(List::size).toList());
+        assertEquals(1L, batches.get(0).get(0));
+        assertEquals(1500L, batches.get(1).get(499));
+        assertEquals(1.0, registry.get("report.snapshot.failures").tag("query", QUERY).functionCounter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getReport_FiltersSortsAndPagesSnapshot() {
+        load(row(1L, "E1", "S2"), row(2L, "E2", "S1"), row(3L, "X3", "S3"), row(4L, "E4", "S1"));
+        when(queryService.convertValues(any(), any())).thenAnswer(invocation -> new ArrayList<>((List<String>) invocation.getArgument(0)));
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("filters", List.of(Map.of("field", "element_id", "op", "CONTAINS", "values", List.of("E"))));
+        parameters.put("sort", List.of(Map.of("field", "site_code", "direction", "DESC")));
+        parameters.put("offset", 1);
+        parameters.put("limit", 2);
+
+        Map<String, Object> report = store.getReport(QUERY, parameters, null, null, true);
+
+        assertEquals(List.of(2L, 4L), ((List<Map<String, Object>>) report.get("rows")).stream().map(row -> row.get("id")).toList());
+        assertEquals(3L, ((Map<String, Object>) report.get("pageInfo")).get("totalCount"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getReport_PagesByCursorInKeyOrder() {
+        load(row(1L, "E1", "S1"), row(2L, "E2", "S1"), row(3L, "E3", "S1"), row(4L, "E4", "S1"));
+
+        Map<String, Object> page = store.getReport(QUERY, new HashMap<>(), 2, ReportCursor.encode(1L), false);
+
+        Map<String, Object> pageInfo = (Map<String, Object>) page.get("pageInfo");
+        assertEquals(List.of(2L, 3L), ((List<Map<String, Object>>) page.get("rows")).stream().map(row -> row.get("id")).toList());
+        assertEquals(true, pageInfo.get("hasNextPage"));
+        assertEquals(3L, ReportCursor.decode((String) pageInfo.get("endCursor")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getReport_EndsCursorPagesOnWholeKeys() {
+        load(row(1L, "E1", "S1"), row(2L, "E2", "S1"), row(2L, "E2", "S2"), row(3L, "E3", "S1"),
+                row(4L, "E4", "S1"), row(4L, "E4", "S2"), row(4L, "E4", "S3"));
+
+        Map<String, Object> page = store.getReport(QUERY, new HashMap<>(), 2, null, false);
+        Map<String, Object> pageInfo = (Map<String, Object>) page.get("pageInfo");
+        assertEquals(List.of(1L), ((List<Map<String, Object>>) page.get("rows")).stream().map(row -> row.get("id")).toList());
+        assertEquals(true, pageInfo.get("hasNextPage"));
+
+        page = store.getReport(QUERY, new HashMap<>(), 2, (String) pageInfo.get("endCursor"), false);
+        assertEquals(List.of(2L, 2L), ((List<Map<String, Object>>) page.get("rows")).stream().map(row -> row.get("id")).toList());
+
+        page = store.getReport(QUERY, new HashMap<>(), 2, ReportCursor.encode(3L), false);
+        pageInfo = (Map<String, Object>) page.get("pageInfo");
+        assertEquals(List.of(4L, 4L, 4L), ((List<Map<String, Object>>) page.get("rows")).stream().map(row -> row.get("id")).toList());
+        assertEquals(false, pageInfo.get("hasNextPage"));
+        assertEquals(4L, ReportCursor.decode((String) pageInfo.get("endCursor")));
+
+        GraphQlApplicationException exception = assertThrows(GraphQlApplicationException.class,
+                () -> store.getReport(QUERY, new HashMap<>(), 0, null, false));
+        assertEquals("INVALID_PAGE_SIZE", exception.getErrorCode());
+    }
+
+    @Test
+    void getReport_LeavesUnservableRequestsToNeo4j() {
+        assertNull(store.getReport(QUERY, new HashMap<>(), null, null, false));
+
+        load(row(1L, "E1", "S1"));
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("filters", List.of(Map.of("field", "structure_state", "op", "EQ", "values", List.of("S1"))));
+
+        assertNull(store.getReport(QUERY, parameters, null, null, false));
+    }
+
+    @SafeVarargs
+    private void load(Map<String, Object>... rows) {
+        Map<Object, Object> versions = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            versions.put(row.get("id"), "a");
+        }
+        when(queryService.keyVersions(QUERY)).thenReturn(versions);
+        answerRows(parameters -> true, rows);
+        assertTrue(store.refresh(QUERY));
+    }
+
+    private static Predicate<Map<String, Object>> keys(Object... keys) {
+        return parameters -> parameters.get("keysetIn") instanceof List<?> requested && Set.copyOf(requested).equals(Set.of(keys));
+    }
+
+    @SafeVarargs
+    private void answerRows(Predicate<Map<String, Object>> parameters, Map<String, Object>... rows) {
+        doAnswer(invocation -> {
+            Predicate<Map<String, Object>> consumer = invocation.getArgument(2);
+            for (Map<String, Object> row : rows) {
+                consumer.test(row);
+            }
+            return null;
+        }).when(queryService).forEachRow(eq(QUERY), argThat((Map<String, Object> arguments) -> parameters.test(arguments)), any());
+    }
+
+    private static Map<String, Object> row(Long id, String elementId, String siteCode) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("element_id", elementId);
+        row.put("site_code", siteCode);
+        return row;
+    }
+}
@@ -2,10 +2,17 @@ package com.example.graphql.service;
 
 import java.util.Collections;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 
+import graphql.Scalars;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLObjectType;
+
 class SchemaBasedQueryGeneratorMethodsTest {
 
     @Test
@@ -19,4 +26,25 @@ class SchemaBasedQueryGeneratorMethodsTest {
         assertTrue(result.contains("RETURN n{.*"));
         assertTrue(result.contains(", related: related} as test"));
     }
+
+    @Test
+    void generateRelationshipQuery_BatchesParentsWithUnwind() {
+        SchemaBasedQueryGenerator generator = new SchemaBasedQueryGenerator();
+        GraphQLObjectType rackType = GraphQLObjectType.newObject()
+                .name("Rack")
+                .field(GraphQLFieldDefinition.newFieldDefinition().name("name").type(Scalars.GraphQLString))
+                .build();
+        GraphQLObjectType suiteType = GraphQLObjectType.newObject()
+                .name("Suite")
+                .field(GraphQLFieldDefinition.newFieldDefinition().name("suite_has_rack_Rack").type(new GraphQLList(rackType)))
+                .build();
+
+        RelationshipQuery query = generator.generateRelationshipQuery(suiteType, suiteType.getFieldDefinition("suite_has_rack_Rack"));
+
+        assertTrue(query.collection());
+        assertEquals("UNWIND $ids AS parentId MATCH (n:Suite) WHERE n.id = parentId"
+                + " OPTIONAL MATCH (suite_has_rack_rack:Rack)-[:SUITE_TO_RACK]->(n)"
+                + " RETURN parentId, collect(suite_has_rack_rack{.*}) AS related", query.cypher());
+        assertSame(query, generator.generateRelationshipQuery(suiteType, suiteType.getFieldDefinition("suite_has_rack_Rack")));
+    }
 }
@@ -2,6 +2,8 @@ package com.example.graphql.service;
 
 import java.util.Collections;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -12,6 +14,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -211,4 +215,56 @@ class SchemaBasedQueryGeneratorTest {
         when(environment.getField()).thenReturn(astField);
         assertThrows(GraphQlApplicationException.class, () -> generator.generateQuery(environment));
     }
+
+    @Test
+    void generateQuery_ReusesCypherForSameSelectionShape() {
+        GraphQLObjectType type = GraphQLObjectType.newObject()
+                .name("Person")
+                .field(GraphQLFieldDefinition.newFieldDefinition().name("name").type(Scalars.GraphQLString))
+                .build();
+
+        when(environment.getGraphQLSchema()).thenReturn(schema);
+        when(schema.getType("Person")).thenReturn(type);
+
+        Field astField = new Field("person");
+        when(environment.getField()).thenReturn(astField);
+
+        DataFetchingFieldSelectionSet selectionSet = mock(DataFetchingFieldSelectionSet.class);
+        SelectedField selectedField = mock(SelectedField.class);
+        when(selectedField.getName()).thenReturn("name");
+        when(selectionSet.getFields()).thenReturn(Collections.singletonList(selectedField));
+        when(environment.getSelectionSet()).thenReturn(selectionSet);
+
+        String first = generator.generateQuery(environment);
+        String second = generator.generateQuery(environment);
+
+        assertSame(first, second);
+        assertEquals(1, generator.getCacheStats().hitCount());
+        assertEquals(1, generator.getCacheStats().missCount());
+        verify(schema, times(1)).getType("Person");
+    }
+
+    @Test
+    void generateQuery_ResolvesRootFieldTypeFromQueryType() {
+        GraphQLSchema realSchema = new graphql.schema.idl.SchemaGenerator().makeExecutableSchema(new graphql.schema.idl.SchemaParser().parse("""
+                type Query { people(name: String): [Person] }
+                type Person { name: String age: Int address: Address }
+                type Address { city: String }
+                """), graphql.schema.idl.RuntimeWiring.MOCKED_WIRING);
+        when(environment.getGraphQLSchema()).thenReturn(realSchema);
+        when(environment.getField()).thenReturn(new Field("people"));
+        when(environment.getArguments()).thenReturn(Collections.emptyMap());
+
+        DataFetchingFieldSelectionSet selectionSet = mock(DataFetchingFieldSelectionSet.class);
+        SelectedField nameField = mock(SelectedField.class);
+        when(nameField.getName()).thenReturn("name");
+        SelectedField ageField = mock(SelectedField.class);
+        when(ageField.getName()).thenReturn("age");
+        when(selectionSet.getFields()).thenReturn(java.util.Arrays.asList(nameField, ageField));
+        when(environment.getSelectionSet()).thenReturn(selectionSet);
+
+        String cypher = generator.generateQuery(environment);
+
+        assertEquals("MATCH (n:Person) RETURN n{name: n.name, age: n.age} as person LIMIT 10 ", cypher);
+    }
 }
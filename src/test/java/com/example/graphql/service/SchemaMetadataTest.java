@@ -0,0 +1,75 @@
+package com.example.graphql.service;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import graphql.Scalars;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+
+class SchemaMetadataTest {
+
+    private static final GraphQLSchema SCHEMA = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse("""
+            type Query {
+              people(name: String): [Person!]!
+              person(id: ID!): Person
+              count: Int
+            }
+            type Person {
+              id: ID!
+              name: String
+              address: Address
+              friends: [Person]
+            }
+            type Address {
+              city: String
+            }
+            """), RuntimeWiring.MOCKED_WIRING);
+
+    private final SchemaMetadata metadata = SchemaMetadata.of(SCHEMA);
+
+    @Test
+    void rootField_ResolvesTargetTypeAndCardinalityFromSchema() {
+        assertEquals("Person", metadata.rootField("people").typeName());
+        assertTrue(metadata.rootField("people").list());
+        assertEquals("Person", metadata.rootField("person").typeName());
+        assertFalse(metadata.rootField("person").list());
+        assertNull(metadata.rootField("count"));
+    }
+
+    @Test
+    void type_SplitsScalarAndRelationshipFields() {
+        SchemaMetadata.TypeMetadata person = metadata.type(SCHEMA.getObjectType("Person"));
+
+        assertEquals(Set.of("id", "name"), person.scalarFields());
+        assertEquals(new SchemaMetadata.Relationship("address", "address", "Address", false), person.relationship("address"));
+        assertEquals(new SchemaMetadata.Relationship("friends", "friends", "Person", true), person.relationship("friends"));
+        assertNull(person.relationship("name"));
+        assertSame(person, metadata.type(SCHEMA.getObjectType("Person")));
+    }
+
+    @Test
+    void type_DescribesTypesOutsideTheSchema() {
+        GraphQLObjectType other = GraphQLObjectType.newObject()
+                .name("Person")
+                .field(GraphQLFieldDefinition.newFieldDefinition().name("age").type(Scalars.GraphQLInt))
+                .build();
+
+        SchemaMetadata.TypeMetadata described = metadata.type(other);
+
+        assertNotSame(metadata.type(SCHEMA.getObjectType("Person")), described);
+        assertEquals(Set.of("age"), described.scalarFields());
+    }
+}